@@ -0,0 +1,107 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.Node;
+
+/**
+ * Hadoop program to convert the textual graph output of
+ *  the GraphParser into a SequenceFile of NodeId - Node
+ *  pairs, so the Pagerank iterations can run in binary
+ *  mode without parsing any text
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class GraphConverter extends Configured implements Tool {
+	
+	public static enum MapCounters { // Counters used for the Map tasks
+		NODES, DANGLING_NODES, STRUCTURES
+	}
+	
+	public static class Map extends Mapper<LongWritable, Text, LongWritable, Node> {
+		
+		@Override
+		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				if (node.hasStructure()) {
+					context.getCounter(MapCounters.STRUCTURES).increment(1);
+				}
+				else {
+					context.getCounter(MapCounters.DANGLING_NODES).increment(1);
+				}
+				context.write(node.getNodeId(), node);
+				context.getCounter(MapCounters.NODES).increment(1);
+			}
+		}
+	}
+	
+	/**
+	 * Create the conversion job. No reducers are used,
+	 *  hence the number of output partitions will equal
+	 *  the number of input partitions.
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param inputPath: String pointing to the GraphParser output
+	 * @param outputPath: String pointing to the binary output
+	 * @return a finalized Job object
+	 * @throws IOException for creating the Job object
+	 */
+	public Job createJob(Configuration conf, String inputPath, String outputPath) throws IOException {
+		Job job = new Job(conf, "Graph Converter"); // Main settings
+		job.setJarByClass(GraphConverter.class);
+		FileInputFormat.setInputPaths(job, new Path(inputPath)); // Input settings
+		job.setInputFormatClass(TextInputFormat.class);
+		FileOutputFormat.setOutputPath(job, new Path(outputPath)); // Output settings
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Node.class);
+		job.setMapperClass(Map.class); // Class settings
+		job.setNumReduceTasks(0);
+		
+		return job;
+	}
+	
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path>");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	@Override
+	public int run(String[] args) throws Exception {
+		Configuration conf = new Configuration(getConf());
+		
+		// Set arguments
+		if (args.length < 2) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		
+		// Create and start the job
+		Job job = createJob(conf, args[0], args[1]);
+		long startTime = System.currentTimeMillis();
+		if (job.waitForCompletion(true)) {
+			System.out.println("Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new GraphConverter(), args);
+		System.exit(result);
+	}
+}
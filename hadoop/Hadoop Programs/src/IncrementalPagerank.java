@@ -0,0 +1,411 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.AdjacencyWritable;
+import types.LongDoubleMap;
+import types.Node;
+import types.PagerankMessage;
+
+/**
+ * Hadoop program to update the Pagerank of a previous run
+ *  for a new dump of the graph, instead of starting over.
+ *  A seed job joins the Pageranks of the previous run with
+ *  the structure of the new graph, and turns the changed
+ *  links of the edge diff into residuals: the mass a node
+ *  no longer receives over removed links and the mass it
+ *  newly receives over added ones. The delta mode of the
+ *  Pagerank job then pushes these residuals on from the
+ *  changed nodes only. Should the residuals hold too much
+ *  mass, global iterations are run from the seeded Pageranks instead.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class IncrementalPagerank extends Configured implements Tool {
+	
+	public static enum SeedCounters { // Counters used for the seed job
+		CHANGED_NODES, NEW_NODES, REMOVED_NODES, SCALED_RESIDUAL
+	}
+	
+	public static final String PREVIOUS_PATH = "previousPath"; // Configuration key holding the location of the output of the previous run
+	public static final String DIFF = "diff"; // Configuration key holding the location of the edge diff
+	public static final String FALLBACK_RESIDUAL = "fallbackResidual"; // Configuration key holding the share of the total mass the residuals may hold before falling back to global iterations
+	
+	/**
+	 * The added and removed links of an edge diff, of which every
+	 *  line reads '+ source destination' or '- source destination'.
+	 *  A link is packed in a long as source, destination and a
+	 *  bit telling whether it is added, hence sorting the links
+	 *  groups them per source. Node ids should fit in an int.
+	 */
+	public static class EdgeDiff {
+		
+		private long[] links;
+		private int size;
+		private long[] buffer; // Reused to build the new links of a node
+		
+		public EdgeDiff(FileSystem fs, Path path) throws IOException {
+			links = new long[1024];
+			buffer = new long[16];
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(path)));
+			String line = "";
+			while ((line = br.readLine()) != null) {
+				String[] terms = line.trim().split("\\s+");
+				if (terms.length < 3) {
+					continue;
+				}
+				long source = Long.parseLong(terms[1]), destination = Long.parseLong(terms[2]);
+				if (source < 0 || source > Integer.MAX_VALUE || destination < 0 || destination > Integer.MAX_VALUE) {
+					throw new IOException("Node ids of the link " + source + " " + destination + " do not fit in an int");
+				}
+				if (size == links.length) {
+					links = Arrays.copyOf(links, size * 2);
+				}
+				links[size++] = (source << 32) | (destination << 1) | (terms[0].equals("+") ? 1 : 0);
+			}
+			br.close();
+			Arrays.sort(links, 0, size);
+		}
+		
+		private int first(long source) { // Position of the first link of the source, or of where it would be
+			int low = 0, high = size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if ((links[middle] >>> 32) < source) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+		
+		public boolean changed(long source) {
+			int i = first(source);
+			return i < size && (links[i] >>> 32) == source;
+		}
+		
+		/**
+		 * Applies the diff to the links of a node
+		 * @param source: the id of the node
+		 * @param oldLinks: the links of the node in the previous run
+		 * @param newLinks: the AdjacencyWritable to fill with the links after the diff
+		 */
+		public void apply(long source, AdjacencyWritable oldLinks, AdjacencyWritable newLinks) {
+			int start = first(source), end = start;
+			while (end < size && (links[end] >>> 32) == source) {
+				end++;
+			}
+			int count = 0;
+			AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor().reset(oldLinks);
+			while (cursor.hasNext()) {
+				long destination = cursor.next();
+				if (Arrays.binarySearch(links, start, end, (source << 32) | (destination << 1)) >= 0) { // Removed
+					continue;
+				}
+				if (count == buffer.length) {
+					buffer = Arrays.copyOf(buffer, count * 2);
+				}
+				buffer[count++] = destination;
+			}
+			for (int i = start; i < end; i++) {
+				if ((links[i] & 1) == 1) { // Added
+					if (count == buffer.length) {
+						buffer = Arrays.copyOf(buffer, count * 2);
+					}
+					buffer[count++] = (links[i] & 0xFFFFFFFFL) >>> 1;
+				}
+			}
+			newLinks.set(buffer, count);
+		}
+	}
+	
+	public static class SeedMap extends Mapper<LongWritable, Text, LongWritable, PagerankMessage> {
+		
+		private boolean previous; // Whether this split holds the output of the previous run, or the new graph
+		private EdgeDiff diff;
+		private AdjacencyWritable newLinks;
+		private AdjacencyWritable.Cursor cursor;
+		private LongDoubleMap correctionsMap; // In-mapper combiner of the corrections
+		private int maxCorrections;
+		private LongWritable messageKey;
+		private PagerankMessage message;
+		
+		@Override
+		public void setup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			Path file = ((FileSplit) context.getInputSplit()).getPath();
+			file = file.getFileSystem(conf).makeQualified(file);
+			Path previousPath = new Path(conf.get(PREVIOUS_PATH)); // Qualified by the driver, as is the path of the split
+			previous = file.equals(previousPath) || file.getParent().equals(previousPath); // Either a single file, or a file in the output directory
+			if (previous) {
+				Path[] paths = DistributedCache.getLocalCacheFiles(conf);
+				if (paths != null && paths.length > 0) {
+					diff = new EdgeDiff(FileSystem.getLocal(conf), paths[0]);
+				}
+				else {
+					diff = new EdgeDiff(FileSystem.get(conf), new Path(conf.get(DIFF)));
+				}
+			}
+			newLinks = new AdjacencyWritable();
+			cursor = new AdjacencyWritable.Cursor();
+			maxCorrections = LongDoubleMap.entriesForMemory(conf.getLong(Pagerank.COMBINE_MEMORY, 64) * 1024 * 1024);
+			correctionsMap = new LongDoubleMap(Math.min(maxCorrections, 1 << 16));
+			messageKey = new LongWritable();
+			message = new PagerankMessage();
+		}
+		
+		@Override
+		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				Node node = new Node();
+				node.parse(line.trim());
+				if (previous) {
+					seedPagerank(node, context);
+				}
+				else { // The new graph only gives the structure
+					message.setStructure(node.hasStructure() ? node.getAdjacencyList() : null);
+					context.write(node.getNodeId(), message);
+				}
+			}
+		}
+		
+		/**
+		 * Sends on the previous Pagerank of a node and, if its
+		 *  links changed, the correction of the mass it sends
+		 *  over its old and its new links
+		 */
+		private void seedPagerank(Node node, Context context) throws IOException, InterruptedException {
+			double pagerank = node.getPagerank().get();
+			message.setState(pagerank, 0.0);
+			context.write(node.getNodeId(), message);
+			if (!diff.changed(node.getNodeId().get())) {
+				return;
+			}
+			context.getCounter(SeedCounters.CHANGED_NODES).increment(1);
+			diff.apply(node.getNodeId().get(), node.getAdjacencyList(), newLinks);
+			correct(node.getAdjacencyList(), -(1 - Pagerank.ALPHA) * pagerank, context);
+			correct(newLinks, (1 - Pagerank.ALPHA) * pagerank, context);
+		}
+		
+		private void correct(AdjacencyWritable links, double mass, Context context) throws IOException, InterruptedException {
+			if (links.isEmpty()) { // A dangling node; its mass is spread through the missing mass
+				return;
+			}
+			double partialMass = mass / links.size();
+			cursor.reset(links);
+			while (cursor.hasNext()) {
+				if (correctionsMap.size() >= maxCorrections) {
+					flush(context);
+				}
+				correctionsMap.add(cursor.next(), partialMass);
+			}
+		}
+		
+		private void flush(Context context) throws IOException, InterruptedException {
+			for (int slot = correctionsMap.nextSlot(-1); slot >= 0; slot = correctionsMap.nextSlot(slot)) {
+				messageKey.set(correctionsMap.keyAt(slot));
+				message.setMass(correctionsMap.valueAt(slot));
+				context.write(messageKey, message);
+			}
+			correctionsMap.clear();
+		}
+		
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+		}
+	}
+	
+	public static class SeedReduce extends Reducer<LongWritable, PagerankMessage, LongWritable, Node> {
+		
+		private long numNodes;
+		private double residualMass;
+		private AdjacencyWritable links;
+		
+		@Override
+		public void setup(Context context) {
+			numNodes = context.getConfiguration().getInt("numNodes", 0);
+			residualMass = 0.0;
+			links = new AdjacencyWritable();
+		}
+		
+		/**
+		 * Joins the structure of the new graph with the previous
+		 *  Pagerank and the corrections of a node. The corrections
+		 *  are added to the Pagerank and kept as the residual,
+		 *  to be send on by the delta mode of the Pagerank job.
+		 *  A new node starts like every node does in delta mode.
+		 */
+		@Override
+		public void reduce(LongWritable key, Iterable<PagerankMessage> values, Context context) throws IOException, InterruptedException {
+			boolean inGraph = false, inPrevious = false;
+			double pagerank = 0.0, residual = 0.0;
+			links.clear();
+			for (PagerankMessage message : values) {
+				if (message.isMass()) {
+					residual += message.getMass();
+				}
+				else if (message.isState()) {
+					inPrevious = true;
+					pagerank = message.getMass();
+				}
+				else {
+					inGraph = true;
+					links.set(message.getAdjacencyList()); // readFields() reuses the list of the value, hence copy it
+				}
+			}
+			if (!inGraph) { // Not in the new graph, hence dropped
+				if (inPrevious) {
+					context.getCounter(SeedCounters.REMOVED_NODES).increment(1);
+				}
+				return;
+			}
+			if (!inPrevious) {
+				context.getCounter(SeedCounters.NEW_NODES).increment(1);
+				residual += Pagerank.finalizePagerank(0.0, numNodes, 1.0);
+			}
+			residualMass += Math.abs(residual);
+			
+			Node node = new Node();
+			node.setNodeId(key.get());
+			node.setPagerank(pagerank + residual);
+			node.setResidual(residual);
+			node.setAdjacencyList(links);
+			node.setAsCompleteNode();
+			context.write(node.getNodeId(), node);
+		}
+		
+		@Override
+		public void cleanup(Context context) {
+			context.getCounter(SeedCounters.SCALED_RESIDUAL).increment(Math.round(residualMass * Pagerank.MASS_SCALE));
+		}
+	}
+	
+	/**
+	 * Runs the seed job
+	 * Map: Will read in the new graph and the output of the previous
+	 *  run, and send on the structure, the previous Pagerank and the
+	 *  corrections for the changed links
+	 * Reduce: Joins them into a binary Node object per node
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param graphPath: String pointing to the new graph
+	 * @param seedPath: String pointing to the output of the seed job
+	 * @return the summed absolute residual of all the nodes
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public double seed(Configuration conf, String graphPath, String seedPath) throws IOException, InterruptedException, ClassNotFoundException {
+		Job seed = new Job(conf, "Incremental Pagerank - Seed"); // Main settings
+		seed.setJarByClass(IncrementalPagerank.class);
+		FileInputFormat.setInputPaths(seed, new Path(graphPath), new Path(conf.get(PREVIOUS_PATH))); // Input settings
+		seed.setInputFormatClass(TextInputFormat.class);
+		FileOutputFormat.setOutputPath(seed, new Path(seedPath)); // Output settings
+		seed.setOutputFormatClass(SequenceFileOutputFormat.class);
+		seed.setOutputKeyClass(LongWritable.class);
+		seed.setOutputValueClass(Node.class);
+		seed.setMapOutputKeyClass(LongWritable.class); // Shuffle settings
+		seed.setMapOutputValueClass(PagerankMessage.class);
+		seed.setMapperClass(SeedMap.class); // Class settings
+		seed.setReducerClass(SeedReduce.class);
+		seed.setPartitionerClass(Pagerank.Partition.class);
+		seed.setNumReduceTasks(Pagerank.countPartitions(conf, graphPath)); // Keeps the partitions of the new graph for the Pagerank job
+		
+		long startTime = System.currentTimeMillis();
+		if (seed.waitForCompletion(true)) {
+			System.out.println("Seed Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+		Counters counters = seed.getCounters();
+		System.out.printf("Changed nodes: %d New nodes: %d Removed nodes: %d\n", counters.findCounter(SeedCounters.CHANGED_NODES).getValue(), counters.findCounter(SeedCounters.NEW_NODES).getValue(), counters.findCounter(SeedCounters.REMOVED_NODES).getValue());
+		return counters.findCounter(SeedCounters.SCALED_RESIDUAL).getValue() / Pagerank.MASS_SCALE;
+	}
+	
+	/**
+	 * Prints out the usages of this program in case the user
+	 *  gave incorrect input
+	 */
+	private int printUsage() {
+		System.out.println("usage:\t <new graph path> <previous output path> <edge diff> <output path> <number of nodes> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + FALLBACK_RESIDUAL + "=<fraction> (share of the total mass the residuals may hold before running global iterations, default 0.1)");
+		System.out.println("\t -D " + Pagerank.EPSILON + "=<value> (residual a node needs before it sends mass, default 0.0001)");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	@Override
+	public int run(String[] args) throws Exception {
+		int numNodes = 0;
+		Configuration conf = new Configuration(getConf());
+		
+		// Set arguments
+		if (args.length < 6) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			numNodes = Integer.parseInt(args[4]);
+			Integer.parseInt(args[5]);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integers instead of " + args[4] + " (arg 4) and " + args[5] + " (arg 5)");
+			return printUsage();
+		}
+		conf.setInt("numNodes", numNodes);
+		Path previousPath = new Path(args[1]); // Qualified, so the Map tasks can recognize its splits
+		previousPath = FileSystem.get(previousPath.toUri(), conf).makeQualified(previousPath);
+		conf.set(PREVIOUS_PATH, previousPath.toString());
+		Path diffPath = new Path(args[2]); // Distributed Cache settings
+		diffPath = FileSystem.get(diffPath.toUri(), conf).makeQualified(diffPath);
+		conf.set(DIFF, diffPath.toString());
+		DistributedCache.addCacheFile(diffPath.toUri(), conf);
+		
+		// Seed, then update the Pageranks with the Pagerank job
+		long startTime = System.currentTimeMillis();
+		String seedPath = args[3] + "/seed";
+		double residualMass = seed(conf, args[0], seedPath);
+		boolean global = residualMass > conf.getFloat(FALLBACK_RESIDUAL, 0.1f) * numNodes;
+		System.out.printf("Residual mass: %f of %d | %s\n", residualMass, numNodes, global ? "too large, running global iterations" : "pushing the residuals in delta mode");
+		
+		Configuration pagerankConf = new Configuration(getConf());
+		pagerankConf.setBoolean(Pagerank.BINARY, true);
+		pagerankConf.setBoolean(Pagerank.TEXT_OUTPUT, true); // Written as text, like the previous run, so it can seed the next one
+		if (!global) { // Global iterations start from the seeded Pageranks as they are
+			pagerankConf.setBoolean(Pagerank.DELTA, true);
+			pagerankConf.setBoolean(Pagerank.SEEDED, true);
+		}
+		int result = ToolRunner.run(pagerankConf, new Pagerank(), new String[] { seedPath, args[3], args[4], args[5] });
+		System.out.println("\n\nIncremental job finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		return result;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new IncrementalPagerank(), args);
+		System.exit(result);
+	}
+}
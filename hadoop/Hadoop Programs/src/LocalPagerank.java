@@ -0,0 +1,426 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.LineReader;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.AdjacencyWritable;
+import types.Node;
+
+/**
+ * Program to run the Pagerank algorithm of the Hadoop
+ *  Pagerank job within a single process, for graphs which
+ *  fit in memory. The graph is loaded into compressed
+ *  sparse row arrays holding the incoming links of every
+ *  node, so every thread can pull the mass of a range of
+ *  nodes without locking. Reads and writes the same
+ *  formats as the Hadoop job, hence it can be used to
+ *  validate its results too. The nodes are split in ranges,
+ *  each pulled in and finalized by one task; subclasses
+ *  keep the graph elsewhere by overriding how it is loaded,
+ *  how a range is handled and how the result is written.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class LocalPagerank extends Configured implements Tool {
+	
+	public static final String THREADS = "threads"; // Configuration key holding the number of threads, defaults to the number of processors
+	
+	protected int[] outDegrees;
+	protected double[] pageranks, receivedMass;
+	protected int[] rangeStarts; // Range k holds the nodes in [rangeStarts[k], rangeStarts[k + 1])
+	private long[] nodeIds; // Sorted ids of all the nodes, including nodes which are only linked to
+	private AdjacencyWritable[] adjacencyLists; // The links of every node, used to write the output
+	private int[] inOffsets, inLinks; // Compressed sparse row arrays of the incoming links per node
+	
+	/**
+	 * Handles every node while streaming through the graph
+	 */
+	protected interface NodeHandler {
+		public void handle(Node node) throws IOException;
+	}
+	
+	/**
+	 * A range of nodes for which a thread pulls in the mass
+	 *  send by their neighbors, returning the summed mass
+	 */
+	private class PullTask implements Callable<Double> {
+		
+		private int range;
+		
+		public PullTask(int range) {
+			this.range = range;
+		}
+		
+		@Override
+		public Double call() {
+			return pullRange(range);
+		}
+	}
+	
+	/**
+	 * A range of nodes for which a thread adds the random
+	 *  jump factor and a part of the missing mass
+	 */
+	private class FinalizeTask implements Callable<Double> {
+		
+		private int range;
+		private long numNodes;
+		private double lostPagerankJuicePart;
+		
+		public FinalizeTask(int range, long numNodes, double lostPagerankJuicePart) {
+			this.range = range;
+			this.numNodes = numNodes;
+			this.lostPagerankJuicePart = lostPagerankJuicePart;
+		}
+		
+		@Override
+		public Double call() {
+			finalizeRange(range, numNodes, lostPagerankJuicePart);
+			return 0.0;
+		}
+	}
+	
+	/**
+	 * Streams through every node of the input, being either text
+	 *  as written by the GraphParser and the Pagerank job, or
+	 *  SequenceFiles of Node objects in binary mode
+	 * @param conf: the Configuration object holding the file system settings
+	 * @param inputPath: String pointing to the graph
+	 * @param handler: the NodeHandler to give every node to, which may keep it
+	 * @throws IOException for reading the files
+	 */
+	protected void streamGraph(Configuration conf, String inputPath, NodeHandler handler) throws IOException {
+		FileSystem fs = FileSystem.get(conf);
+		boolean binary = conf.getBoolean(Pagerank.BINARY, false);
+		for (FileStatus f : fs.listStatus(new Path(inputPath))) {
+			if (!f.getPath().getName().contains("part-")) {
+				continue;
+			}
+			if (binary) {
+				SequenceFile.Reader reader = new SequenceFile.Reader(fs, f.getPath(), conf);
+				LongWritable key = new LongWritable();
+				Node node = new Node();
+				while (reader.next(key, node)) {
+					handler.handle(node);
+					node = new Node(); // Node objects reuse their list, hence a new one per read
+				}
+				reader.close();
+			}
+			else {
+				LineReader reader = new LineReader(fs.open(f.getPath()));
+				Text line = new Text();
+				while (reader.readLine(line) > 0) {
+					if (line.getLength() == 0) {
+						continue;
+					}
+					Node node = new Node();
+					node.parse(line.toString().trim());
+					handler.handle(node);
+				}
+				reader.close();
+			}
+		}
+	}
+	
+	/**
+	 * Reads in every node of the input
+	 * @param conf: the Configuration object holding the file system settings
+	 * @param inputPath: String pointing to the graph
+	 * @return a list of all the nodes read in
+	 * @throws IOException for reading the files
+	 */
+	private List<Node> readGraph(Configuration conf, String inputPath) throws IOException {
+		final List<Node> nodes = new ArrayList<Node>();
+		streamGraph(conf, inputPath, new NodeHandler() {
+			@Override
+			public void handle(Node node) {
+				nodes.add(node);
+			}
+		});
+		return nodes;
+	}
+	
+	/**
+	 * Converts the nodes read in to the compressed sparse row arrays.
+	 *  Nodes which are only linked to are added as dangling nodes,
+	 *  as the Reduce tasks of the Hadoop job would do.
+	 * @param nodes: the list of all the nodes read in
+	 */
+	private void buildGraph(List<Node> nodes) {
+		AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor();
+		int numLinks = 0;
+		for (Node node : nodes) {
+			numLinks += node.hasStructure() ? node.getAdjacencyList().size() : 0;
+		}
+		
+		long[] ids = new long[nodes.size() + numLinks]; // Collect all ids, sort them and drop the duplicates
+		int size = 0;
+		for (Node node : nodes) {
+			ids[size++] = node.getNodeId().get();
+			if (node.hasStructure()) {
+				cursor.reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					ids[size++] = cursor.next();
+				}
+			}
+		}
+		Arrays.sort(ids);
+		int unique = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || ids[i] != ids[unique - 1]) {
+				ids[unique++] = ids[i];
+			}
+		}
+		nodeIds = Arrays.copyOf(ids, unique);
+		
+		adjacencyLists = new AdjacencyWritable[unique];
+		outDegrees = new int[unique];
+		pageranks = new double[unique];
+		receivedMass = new double[unique];
+		inOffsets = new int[unique + 1];
+		for (Node node : nodes) { // Count the incoming links per node
+			int u = indexOf(node.getNodeId().get());
+			pageranks[u] = node.getPagerank().get();
+			if (node.hasStructure()) {
+				adjacencyLists[u] = node.getAdjacencyList();
+				outDegrees[u] = node.getAdjacencyList().size();
+				cursor.reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					inOffsets[indexOf(cursor.next()) + 1]++;
+				}
+			}
+		}
+		for (int v = 0; v < unique; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		
+		inLinks = new int[numLinks];
+		int[] position = Arrays.copyOf(inOffsets, unique);
+		for (int u = 0; u < unique; u++) { // Fill in the incoming links
+			if (adjacencyLists[u] != null) {
+				cursor.reset(adjacencyLists[u]);
+				while (cursor.hasNext()) {
+					inLinks[position[indexOf(cursor.next())]++] = u;
+				}
+			}
+		}
+	}
+	
+	private int indexOf(long nodeId) {
+		return Arrays.binarySearch(nodeIds, nodeId);
+	}
+	
+	/**
+	 * Loads the graph into memory and splits the nodes in ranges
+	 * @param conf: the Configuration object holding the file system settings
+	 * @param inputPath: String pointing to the graph
+	 * @param threads: the number of threads to use
+	 * @return a description of the graph loaded
+	 * @throws IOException for reading the files
+	 */
+	protected String loadGraph(Configuration conf, String inputPath, int threads) throws IOException {
+		buildGraph(readGraph(conf, inputPath));
+		int chunks = threads * 4; // More ranges than threads, so a range with many links does not keep the other threads waiting
+		int chunkSize = Math.max((nodeIds.length + chunks - 1) / chunks, 1);
+		rangeStarts = new int[(nodeIds.length + chunkSize - 1) / chunkSize + 1];
+		for (int k = 0; k < rangeStarts.length; k++) {
+			rangeStarts[k] = Math.min(k * chunkSize, nodeIds.length);
+		}
+		return String.format("Loaded %d nodes and %d links", nodeIds.length, inLinks.length);
+	}
+	
+	/**
+	 * Pulls in the mass send to the nodes of a range
+	 * @param range: the index of the range
+	 * @return the mass received by the range
+	 */
+	protected double pullRange(int range) {
+		double mass = 0.0;
+		for (int v = rangeStarts[range]; v < rangeStarts[range + 1]; v++) {
+			double received = 0.0;
+			for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+				int u = inLinks[i];
+				received += pageranks[u] / outDegrees[u];
+			}
+			receivedMass[v] = received;
+			mass += received;
+		}
+		return mass;
+	}
+	
+	/**
+	 * Adds the random jump factor and a part of the missing
+	 *  mass to the nodes of a range
+	 * @param range: the index of the range
+	 * @param numNodes: the number of nodes as given at start
+	 * @param lostPagerankJuicePart: the part of the missing mass every node receives
+	 */
+	protected void finalizeRange(int range, long numNodes, double lostPagerankJuicePart) {
+		for (int v = rangeStarts[range]; v < rangeStarts[range + 1]; v++) {
+			pageranks[v] = Pagerank.finalizePagerank(receivedMass[v], numNodes, lostPagerankJuicePart);
+		}
+	}
+	
+	/**
+	 * Runs a set of tasks on the thread pool and sums up their results
+	 * @param executor: the ExecutorService to run the tasks on
+	 * @param tasks: the List of tasks to run
+	 * @return the sum of the results of the tasks
+	 * @throws InterruptedException for waiting on the tasks
+	 * @throws ExecutionException if a task failed
+	 */
+	private double runTasks(ExecutorService executor, List<Callable<Double>> tasks) throws InterruptedException, ExecutionException {
+		double sum = 0.0;
+		for (Future<Double> result : executor.invokeAll(tasks)) {
+			sum += result.get();
+		}
+		return sum;
+	}
+	
+	/**
+	 * Will run the iterations of the Pagerank algorithm, using
+	 *  the same formula and convergence check as the Hadoop job
+	 * @param numNodes: the number of nodes as given at start
+	 * @param iterations: the maximum number of iterations
+	 * @param threads: the number of threads to use
+	 * @throws InterruptedException for waiting on the threads
+	 * @throws ExecutionException if a thread failed
+	 */
+	private void iterate(long numNodes, int iterations, int threads) throws InterruptedException, ExecutionException {
+		int numRanges = rangeStarts.length - 1;
+		double mass = 0.0, oldMass = 0.0;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int iteration = 0; iteration < iterations; iteration++) {
+				long startTime = System.currentTimeMillis();
+				List<Callable<Double>> pullTasks = new ArrayList<Callable<Double>>();
+				for (int k = 0; k < numRanges; k++) {
+					pullTasks.add(new PullTask(k));
+				}
+				oldMass = mass;
+				mass = runTasks(executor, pullTasks);
+				
+				double missingMass = numNodes - mass; // The missing mass will equal the total mass (thus, number of nodes) minus the mass send
+				List<Callable<Double>> finalizeTasks = new ArrayList<Callable<Double>>();
+				for (int k = 0; k < numRanges; k++) {
+					finalizeTasks.add(new FinalizeTask(k, numNodes, missingMass / numNodes));
+				}
+				runTasks(executor, finalizeTasks);
+				System.out.printf("Iteration %d complete in %.3f seconds\nTotal Mass Send: %f Missing Mass: %f\n", iteration + 1, (System.currentTimeMillis() - startTime) / 1000.0, mass, missingMass);
+				
+				if (oldMass != 0 && Math.abs(oldMass - mass) < Pagerank.CONVERGENCE_POINT) {
+					System.out.printf("Convergence point has been reached in iterations %d\n\toldMass: %f - mass: %f = diff: %f\n", iteration, oldMass, mass, oldMass - mass);
+					break;
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Writes every node in the text format of the Pagerank job
+	 * @param conf: the Configuration object holding the file system settings
+	 * @param inputPath: String pointing to the graph, not read again as it is kept in memory
+	 * @param outputPath: String pointing to the output directory
+	 * @throws IOException for writing the file
+	 */
+	protected void writeGraph(Configuration conf, String inputPath, String outputPath) throws IOException {
+		FileSystem fs = FileSystem.get(conf);
+		BufferedWriter bwr = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(outputPath + "/part-r-00000"), false)));
+		for (int v = 0; v < nodeIds.length; v++) {
+			Node node = new Node();
+			node.setPagerank(pageranks[v]);
+			node.setAdjacencyList(adjacencyLists[v]);
+			bwr.write(nodeIds[v] + "\t" + node.structure() + "\n");
+		}
+		bwr.flush();
+		bwr.close();
+	}
+	
+	/**
+	 * Releases what the graph holds outside of the heap, once
+	 *  the result is written or a step failed; nothing for a
+	 *  graph in memory
+	 */
+	protected void releaseGraph() {
+	}
+	
+	/**
+	 * Prints out the usages of this program in case the user
+	 *  gave incorrect input
+	 */
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <number of nodes> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + Pagerank.BINARY + "=true (input converted by GraphConverter)");
+		System.out.println("\t -D " + THREADS + "=<number> (default the number of processors)");
+		printOptions();
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	/**
+	 * Prints the options a subclass adds to the usage
+	 */
+	protected void printOptions() {
+	}
+	
+	@Override
+	public int run(String[] args) throws Exception {
+		int numNodes = 0, iterations = 0;
+		Configuration conf = new Configuration(getConf());
+		
+		// Set arguments
+		if (args.length < 4) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			numNodes = Integer.parseInt(args[2]);
+			iterations = Integer.parseInt(args[3]);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integers instead of " + args[2] + " (arg 2) and " + args[3] + " (arg 3)");
+			return printUsage();
+		}
+		int threads = conf.getInt(THREADS, Runtime.getRuntime().availableProcessors());
+		
+		// Load, run and write
+		long startTime = System.currentTimeMillis();
+		try {
+			String graph = loadGraph(conf, args[0], threads);
+			System.out.printf("%s in %.3f seconds | Threads: %d\n", graph, (System.currentTimeMillis() - startTime) / 1000.0, threads);
+			iterate(numNodes, iterations, threads);
+			writeGraph(conf, args[0], args[1]);
+		} finally {
+			releaseGraph();
+		}
+		System.out.println("\n\nJob finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new LocalPagerank(), args);
+		System.exit(result);
+	}
+}
@@ -0,0 +1,615 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.LongDoubleMap;
+import types.Node;
+import types.WalkKey;
+import types.WalkSegment;
+
+/**
+ * Hadoop program to estimate the Pagerank with random walks,
+ *  as done by Das Sarma et al. Every node starts a number of
+ *  walks, which stop with the damping factor at every step
+ *  and at dangling nodes. A walk is built in doubling rounds:
+ *  the first job takes a single step for every walk, after
+ *  which every round extends a walk ending at a node with one
+ *  of the walks starting at that node, doubling the length of
+ *  all the walks at once. The walks ending at a node are
+ *  sorted behind the walks starting at it, so they are
+ *  extended as they stream by. The walks of a node are reused by
+ *  every walk passing by, hence walks meeting at a node may
+ *  continue alike; this raises the variance. The walk used is
+ *  picked by hashing the extended walk and the round, so a
+ *  walk returning to its start does not follow itself in a
+ *  loop, which would bias the estimate. The Pagerank
+ *  of a node is estimated as its share of all the visits, so
+ *  the estimates sum up to one; the highest ones are collected
+ *  in a top K.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class MonteCarloPagerank extends Configured implements Tool {
+	
+	public static enum WalkCounters { // Counters used for the walk jobs
+		WALKS, STOPPED, TRUNCATED, VISITS, EXTENDED
+	}
+	
+	public static final String WALKS = "walks"; // Configuration key holding the number of walks started per node
+	public static final String SEED = "seed"; // Configuration key holding the seed of the random walks
+	public static final String TOP_K = "topK"; // Configuration key holding the number of nodes in the top K
+	public static final String TOTAL_VISITS = "totalVisits"; // Configuration key holding the number of visits of all the walks
+	public static final String ROUND = "round"; // Configuration key holding the current doubling round
+	public static final String LAST_ROUND = "lastRound"; // Configuration key stating whether the walks are cut off after this round
+	public static final String TOP_PATH = "topPath"; // Configuration key holding the location the Reduce tasks write their top K candidates to
+	
+	public static class StartMap extends Mapper<LongWritable, Writable, LongWritable, WalkSegment> {
+		
+		private int walks;
+		private long seed;
+		private WalkSegment segment;
+		
+		@Override
+		public void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			walks = conf.getInt(WALKS, 16);
+			seed = conf.getLong(SEED, 0);
+			segment = new WalkSegment();
+		}
+		
+		@Override
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				startWalks((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				startWalks(node, context);
+			}
+		}
+		
+		/**
+		 * Starts the walks of a node and takes their first step
+		 */
+		private void startWalks(Node node, Context context) throws IOException, InterruptedException {
+			long nodeId = node.getNodeId().get();
+			Random random = new Random(seed ^ (nodeId * 0x9E3779B97F4A7C15L)); // Seeded per node, so a rerun takes the same walks
+			long[] links = node.hasStructure() ? node.getAdjacencyList().toArray() : null;
+			for (int i = 0; i < walks; i++) {
+				segment.set(nodeId, i);
+				segment.setType(WalkSegment.WALK);
+				if (links == null || random.nextDouble() < Pagerank.ALPHA) { // Jump, or a dangling node; both end the walk
+					segment.setStopped(true);
+				}
+				else {
+					segment.add(links[random.nextInt(links.length)]);
+				}
+				context.write(node.getNodeId(), segment);
+			}
+			context.getCounter(WalkCounters.WALKS).increment(walks);
+		}
+	}
+	
+	public static class DoublingMap extends Mapper<LongWritable, WalkSegment, WalkKey, WalkSegment> {
+		
+		private WalkKey outKey;
+		
+		@Override
+		public void setup(Context context) {
+			outKey = new WalkKey();
+		}
+		
+		/**
+		 * Offers every walk as the continuation for the walks
+		 *  ending at its start, and sends a walk which did not
+		 *  stop yet to the node it ends at, to be extended
+		 */
+		@Override
+		public void map(LongWritable key, WalkSegment segment, Context context) throws IOException, InterruptedException {
+			segment.setType(WalkSegment.CONTINUATION);
+			outKey.set(segment.getStart(), segment.getType());
+			context.write(outKey, segment);
+			if (segment.isStopped()) {
+				segment.setType(WalkSegment.FINISHED);
+				outKey.set(segment.getStart(), segment.getType());
+				context.write(outKey, segment);
+			}
+			else {
+				segment.setType(WalkSegment.WALK);
+				outKey.set(segment.getEnd(), segment.getType());
+				context.write(outKey, segment);
+			}
+		}
+	}
+	
+	/**
+	 * Sorts the segments sent to a node on their tag, so the
+	 *  continuations come before the walks to extend
+	 */
+	public static class SortComparator extends WritableComparator {
+		
+		protected SortComparator() {
+			super(WalkKey.class, true);
+		}
+		
+		@Override
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			long id1 = readLong(b1, s1);
+			long id2 = readLong(b2, s2);
+			if (id1 != id2) {
+				return id1 < id2 ? -1 : 1;
+			}
+			return b1[s1 + WalkKey.SIZE - 1] - b2[s2 + WalkKey.SIZE - 1];
+		}
+		
+		@Override
+		public int compare(WritableComparable w1, WritableComparable w2) {
+			return ((WalkKey) w1).compareTo((WalkKey) w2);
+		}
+	}
+	
+	/**
+	 * Groups the segments sent to a node into one Reduce call,
+	 *  whatever their tag
+	 */
+	public static class GroupComparator extends WritableComparator {
+		
+		protected GroupComparator() {
+			super(WalkKey.class, true);
+		}
+		
+		@Override
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			long id1 = readLong(b1, s1);
+			long id2 = readLong(b2, s2);
+			return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+		}
+		
+		@Override
+		public int compare(WritableComparable w1, WritableComparable w2) {
+			long id1 = ((WalkKey) w1).getNodeId();
+			long id2 = ((WalkKey) w2).getNodeId();
+			return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+		}
+	}
+	
+	public static class Partition extends Partitioner<WalkKey, WalkSegment> {
+		
+		@Override
+		public int getPartition(WalkKey key, WalkSegment segment, int numPartitions) {
+			if (numPartitions == 0) {
+				return 0;
+			}
+			return (int) (key.getNodeId() % numPartitions);
+		}
+	}
+	
+	public static class DoublingReduce extends Reducer<WalkKey, WalkSegment, LongWritable, WalkSegment> {
+		
+		private int round, walks;
+		private boolean lastRound;
+		private WalkSegment[] continuations; // The walks starting at the current node, per index
+		private LongWritable outKey;
+		
+		@Override
+		public void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			round = conf.getInt(ROUND, 1);
+			walks = conf.getInt(WALKS, 16);
+			lastRound = conf.getBoolean(LAST_ROUND, false);
+			continuations = new WalkSegment[walks];
+			outKey = new LongWritable();
+		}
+		
+		/**
+		 * Extends the walks ending at a node as they come in;
+		 *  the sort order hands over the continuations first
+		 */
+		@Override
+		public void reduce(WalkKey key, Iterable<WalkSegment> values, Context context) throws IOException, InterruptedException {
+			boolean[] found = new boolean[continuations.length];
+			for (WalkSegment segment : values) { // readFields() reuses the value, hence copy what is kept
+				if (segment.getType() == WalkSegment.CONTINUATION) {
+					if (continuations[segment.getIndex()] == null) {
+						continuations[segment.getIndex()] = new WalkSegment();
+					}
+					continuations[segment.getIndex()].set(segment);
+					found[segment.getIndex()] = true;
+				}
+				else if (segment.getType() == WalkSegment.FINISHED) {
+					write(segment, context);
+				}
+				else {
+					int index = continuationIndex(segment, round, walks);
+					if (found[index]) {
+						segment.append(continuations[index]);
+						context.getCounter(WalkCounters.EXTENDED).increment(1);
+					}
+					else { // The walk ended at a node which is not part of the input, thus a dangling node
+						segment.setStopped(true);
+					}
+					write(segment, context);
+				}
+			}
+		}
+		
+		/**
+		 * Picks the walk to extend a request with by scrambling
+		 *  its start, index and the round; a walk back at its
+		 *  start never picks itself
+		 * @param request: the WalkSegment to extend
+		 * @param round: the current doubling round
+		 * @param walks: the number of walks started per node
+		 * @return the index of the continuation to use
+		 */
+		public static int continuationIndex(WalkSegment request, int round, int walks) {
+			long h = (request.getStart() * 0x9E3779B97F4A7C15L) ^ ((long) request.getIndex() << 20) ^ round;
+			h ^= h >>> 33; // Finalizer of MurmurHash3
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			int index = (int) ((h & Long.MAX_VALUE) % walks);
+			if (request.getEnd() == request.getStart() && index == request.getIndex()) {
+				index = (index + 1) % walks;
+			}
+			return index;
+		}
+		
+		private void write(WalkSegment segment, Context context) throws IOException, InterruptedException {
+			segment.setType(WalkSegment.WALK);
+			outKey.set(segment.getStart());
+			context.write(outKey, segment);
+			context.getCounter(WalkCounters.VISITS).increment(segment.getLength());
+			if (segment.isStopped()) {
+				context.getCounter(WalkCounters.STOPPED).increment(1);
+			}
+			else if (lastRound) { // Cut off at the maximal length
+				context.getCounter(WalkCounters.TRUNCATED).increment(1);
+			}
+		}
+	}
+	
+	public static class VisitMap extends Mapper<LongWritable, WalkSegment, LongWritable, DoubleWritable> {
+		
+		private LongDoubleMap visitsMap; // In-mapper combiner of the visits per node
+		private int maxVisits;
+		private LongWritable outKey;
+		private DoubleWritable outValue;
+		
+		@Override
+		public void setup(Context context) {
+			maxVisits = LongDoubleMap.entriesForMemory(context.getConfiguration().getLong(Pagerank.COMBINE_MEMORY, 64) * 1024 * 1024);
+			visitsMap = new LongDoubleMap(Math.min(maxVisits, 1 << 16));
+			outKey = new LongWritable();
+			outValue = new DoubleWritable();
+		}
+		
+		@Override
+		public void map(LongWritable key, WalkSegment segment, Context context) throws IOException, InterruptedException {
+			for (int i = 0; i < segment.getLength(); i++) {
+				if (visitsMap.size() >= maxVisits) {
+					flush(context);
+				}
+				visitsMap.add(segment.getVisit(i), 1.0);
+			}
+		}
+		
+		private void flush(Context context) throws IOException, InterruptedException {
+			for (int slot = visitsMap.nextSlot(-1); slot >= 0; slot = visitsMap.nextSlot(slot)) {
+				outKey.set(visitsMap.keyAt(slot));
+				outValue.set(visitsMap.valueAt(slot));
+				context.write(outKey, outValue);
+			}
+			visitsMap.clear();
+		}
+		
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+		}
+	}
+	
+	/**
+	 * A node and its estimated Pagerank, ordered on the estimate
+	 */
+	public static class Candidate implements Comparable<Candidate> {
+		
+		private long nodeId;
+		private double pagerank;
+		
+		public Candidate(long nodeId, double pagerank) {
+			this.nodeId = nodeId;
+			this.pagerank = pagerank;
+		}
+		
+		@Override
+		public int compareTo(Candidate c) {
+			int cmp = Double.compare(pagerank, c.pagerank);
+			return cmp != 0 ? cmp : (nodeId < c.nodeId ? 1 : (nodeId == c.nodeId ? 0 : -1)); // Equal estimates rank the lower id higher
+		}
+		
+		@Override
+		public String toString() {
+			return nodeId + "\t" + pagerank;
+		}
+	}
+	
+	public static class VisitReduce extends Reducer<LongWritable, DoubleWritable, LongWritable, DoubleWritable> {
+		
+		private double totalVisits;
+		private int topK;
+		private PriorityQueue<Candidate> top; // The smallest of the top K on top
+		private DoubleWritable outValue;
+		
+		@Override
+		public void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			totalVisits = conf.getLong(TOTAL_VISITS, 1);
+			topK = conf.getInt(TOP_K, 1000);
+			top = new PriorityQueue<Candidate>(topK + 1);
+			outValue = new DoubleWritable();
+		}
+		
+		@Override
+		public void reduce(LongWritable key, Iterable<DoubleWritable> values, Context context) throws IOException, InterruptedException {
+			double visits = 0.0;
+			for (DoubleWritable value : values) {
+				visits += value.get();
+			}
+			outValue.set(visits / totalVisits);
+			context.write(key, outValue);
+			top.add(new Candidate(key.get(), outValue.get()));
+			if (top.size() > topK) {
+				top.poll();
+			}
+		}
+		
+		/**
+		 * Writes the top K of this Reduce task to a file of its
+		 *  own, so the driver only merges these candidates
+		 */
+		@Override
+		public void cleanup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			Path topFile = new Path(conf.get(TOP_PATH) + "/" + String.format("part-r-%05d", conf.getInt("mapred.task.partition", 0)));
+			BufferedWriter bwr = new BufferedWriter(new OutputStreamWriter(FileSystem.get(conf).create(topFile, true)));
+			for (Candidate candidate : top) {
+				bwr.write(candidate.toString() + "\n");
+			}
+			bwr.close();
+		}
+	}
+	
+	/**
+	 * Starts the walks of every node and takes their first step
+	 * Map: Will read in all the nodes of the graph and start
+	 *  their walks (no Reduce tasks)
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @param outputPath: String pointing to the walks of length one
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public void start(Configuration conf, String startPath, String outputPath) throws IOException, InterruptedException, ClassNotFoundException {
+		Job start = new Job(conf, "Monte Carlo Pagerank - Start Walks"); // Main settings
+		start.setJarByClass(MonteCarloPagerank.class);
+		FileInputFormat.setInputPaths(start, new Path(startPath)); // Input settings
+		Pagerank.setInputFormat(start, conf.getBoolean(Pagerank.BINARY, false));
+		FileOutputFormat.setOutputPath(start, new Path(outputPath)); // Output settings
+		start.setOutputFormatClass(SequenceFileOutputFormat.class);
+		start.setOutputKeyClass(LongWritable.class);
+		start.setOutputValueClass(WalkSegment.class);
+		start.setMapperClass(StartMap.class); // Class settings
+		start.setNumReduceTasks(0);
+		
+		long startTime = System.currentTimeMillis();
+		if (start.waitForCompletion(true)) {
+			System.out.println("Start Walks Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+	}
+	
+	/**
+	 * Runs a doubling round
+	 * Map: Will send every walk to its start, as continuation,
+	 *  and to its end, to be extended
+	 * Reduce: Extends the walks ending at a node with walks
+	 *  starting at the node, which are sorted in first
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param inputPath: String pointing to the walks of the previous round
+	 * @param outputPath: String pointing to the walks of this round
+	 * @param round: Integer containing the current round
+	 * @param numPartitions: the number of Reduce tasks
+	 * @return the number of visits of all the walks after this round
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public long doubleWalks(Configuration conf, String inputPath, String outputPath, int round, int numPartitions) throws IOException, InterruptedException, ClassNotFoundException {
+		Job doubling = new Job(conf, "Monte Carlo Pagerank - Round " + round); // Main settings
+		doubling.setJarByClass(MonteCarloPagerank.class);
+		FileInputFormat.setInputPaths(doubling, new Path(inputPath)); // Input settings
+		doubling.setInputFormatClass(SequenceFileInputFormat.class);
+		FileOutputFormat.setOutputPath(doubling, new Path(outputPath)); // Output settings
+		doubling.setOutputFormatClass(SequenceFileOutputFormat.class);
+		doubling.setOutputKeyClass(LongWritable.class);
+		doubling.setOutputValueClass(WalkSegment.class);
+		doubling.setMapOutputKeyClass(WalkKey.class);
+		doubling.setMapOutputValueClass(WalkSegment.class);
+		doubling.setMapperClass(DoublingMap.class); // Class settings
+		doubling.setReducerClass(DoublingReduce.class);
+		doubling.setPartitionerClass(Partition.class);
+		doubling.setSortComparatorClass(SortComparator.class);
+		doubling.setGroupingComparatorClass(GroupComparator.class);
+		doubling.setNumReduceTasks(numPartitions);
+		
+		long startTime = System.currentTimeMillis();
+		if (doubling.waitForCompletion(true)) {
+			System.out.println("Round " + round + " Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+		Counters counters = doubling.getCounters();
+		System.out.printf("Walks extended: %d Walks stopped: %d Walks cut off: %d\n", counters.findCounter(WalkCounters.EXTENDED).getValue(), counters.findCounter(WalkCounters.STOPPED).getValue(), counters.findCounter(WalkCounters.TRUNCATED).getValue());
+		return counters.findCounter(WalkCounters.VISITS).getValue();
+	}
+	
+	/**
+	 * Counts the visits per node
+	 * Map: Will send a visit for every node on every walk
+	 * Reduce: Sums up the visits of a node into its estimate,
+	 *  and keeps the top K of its nodes
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param inputPath: String pointing to the walks of the last round
+	 * @param outputPath: String pointing to the estimates
+	 * @param numPartitions: the number of Reduce tasks
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public void countVisits(Configuration conf, String inputPath, String outputPath, int numPartitions) throws IOException, InterruptedException, ClassNotFoundException {
+		Job count = new Job(conf, "Monte Carlo Pagerank - Count Visits"); // Main settings
+		count.setJarByClass(MonteCarloPagerank.class);
+		FileInputFormat.setInputPaths(count, new Path(inputPath)); // Input settings
+		count.setInputFormatClass(SequenceFileInputFormat.class);
+		FileOutputFormat.setOutputPath(count, new Path(outputPath)); // Output settings
+		count.setOutputFormatClass(TextOutputFormat.class);
+		count.setOutputKeyClass(LongWritable.class);
+		count.setOutputValueClass(DoubleWritable.class);
+		count.setMapperClass(VisitMap.class); // Class settings
+		count.setReducerClass(VisitReduce.class);
+		count.setNumReduceTasks(numPartitions);
+		
+		long startTime = System.currentTimeMillis();
+		if (count.waitForCompletion(true)) {
+			System.out.println("Count Visits Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+	}
+	
+	/**
+	 * Merges the top K candidates of the Reduce tasks into
+	 *  the overall top K, written highest first
+	 * @param conf: the Configuration object holding the file system settings
+	 * @param topPath: String pointing to the candidates
+	 * @param outputPath: String pointing to the top K file
+	 * @throws IOException for reading and writing the files
+	 */
+	private void mergeTop(Configuration conf, String topPath, String outputPath) throws IOException {
+		FileSystem fs = FileSystem.get(conf);
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (FileStatus f : fs.listStatus(new Path(topPath))) {
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(f.getPath())));
+			String line = "";
+			while ((line = br.readLine()) != null) {
+				String[] terms = line.split("\t");
+				candidates.add(new Candidate(Long.parseLong(terms[0]), Double.parseDouble(terms[1])));
+			}
+			br.close();
+		}
+		Collections.sort(candidates, Collections.reverseOrder());
+		
+		int topK = conf.getInt(TOP_K, 1000);
+		BufferedWriter bwr = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(outputPath), true)));
+		for (int i = 0; i < candidates.size() && i < topK; i++) {
+			bwr.write(candidates.get(i).toString() + "\n");
+			if (i < 10) {
+				System.out.printf("%d.\t%s\n", i + 1, candidates.get(i));
+			}
+		}
+		bwr.close();
+	}
+	
+	/**
+	 * Prints out the usages of this program in case the user
+	 *  gave incorrect input
+	 */
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <number of walks per node> <number of doubling rounds>");
+		System.out.println("options:");
+		System.out.println("\t -D " + Pagerank.BINARY + "=true (input converted by GraphConverter)");
+		System.out.println("\t -D " + TOP_K + "=<number> (size of the top K, default 1000)");
+		System.out.println("\t -D " + SEED + "=<number> (seed of the random walks, default 0)");
+		System.out.println("\t -D " + Pagerank.COMBINE_MEMORY + "=<MB> (combiner memory, default 64)");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	@Override
+	public int run(String[] args) throws Exception {
+		int walks = 0, rounds = 0;
+		Configuration conf = new Configuration(getConf());
+		
+		// Set arguments
+		if (args.length < 4) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			walks = Integer.parseInt(args[2]);
+			rounds = Integer.parseInt(args[3]);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integers instead of " + args[2] + " (arg 2) and " + args[3] + " (arg 3)");
+			return printUsage();
+		}
+		conf.setInt(WALKS, walks);
+		String basePath = args[1];
+		int numPartitions = Pagerank.countPartitions(conf, args[0]);
+		System.out.printf("Startpath: %s Basepath: %s Walks per node: %d Rounds: %d (walks of at most %d steps)\n", args[0], basePath, walks, rounds, 1L << rounds);
+		
+		// Start, double and count the walks
+		long startTime = System.currentTimeMillis();
+		start(conf, args[0], basePath + "/round0");
+		long totalVisits = 0;
+		for (int round = 1; round <= rounds; round++) {
+			conf.setInt(ROUND, round);
+			conf.setBoolean(LAST_ROUND, round == rounds);
+			totalVisits = doubleWalks(conf, basePath + "/round" + (round - 1), basePath + "/round" + round, round, numPartitions);
+		}
+		if (totalVisits == 0) {
+			System.err.println("Error: at least one doubling round is needed");
+			return printUsage();
+		}
+		conf.setLong(TOTAL_VISITS, totalVisits);
+		conf.set(TOP_PATH, basePath + "/topCandidates");
+		countVisits(conf, basePath + "/round" + rounds, basePath + "/pagerank", numPartitions);
+		mergeTop(conf, conf.get(TOP_PATH), basePath + "/top");
+		System.out.println("\n\nJob finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new MonteCarloPagerank(), args);
+		System.exit(result);
+	}
+}
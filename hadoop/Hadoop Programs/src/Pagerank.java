@@ -1,7 +1,11 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
 
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -10,19 +14,30 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import types.AdjacencyWritable;
+import types.LongDoubleMap;
 import types.Node;
+import types.PagerankMessage;
 
 /**
  * Hadoop program to run the Pagerank algorithm as
@@ -34,205 +49,1152 @@ public class Pagerank extends Configured implements Tool {
 	
 	public static enum MapCounters { // Counters used for the Map tasks
 		NODES, DANGLING_NODES, STRUCTURES,
-		MASS_WRITTEN, TOTAL_WRITES
+		MASS_WRITTEN, TOTAL_WRITES,
+		MASS_CONTRIBUTIONS, FLUSHES,
+		ACTIVE_VERTICES, ACTIVE_EDGES, SCALED_SENT,
+		LOCAL_EDGES, SCALED_CHANGE, EXTRAPOLATED,
+		MIRRORED
 	}
 	
 	public static enum ReduceCounters { // Counters used for the Reduce tasks
 		NODES, DANGLING_NODES, STRUCTURES,
-		MASS_READ, TOTAL_READS
+		MASS_READ, TOTAL_READS, STRUCTURES_MERGED,
+		SCALED_MASS, LOCAL_SWEEPS,
+		HUBS, MIRRORS_READ
 	}
 	
 	public static final double ALPHA = 0.15f; // Global double representing the damping factor of the Pagerank algorithm
 	public static final float CONVERGENCE_POINT = 0.001f;
+	public static final String BINARY = "binary"; // Configuration key to run on SequenceFiles of Node objects instead of text
+	public static final String TEXT_OUTPUT = "textOutput"; // Configuration key to write the final iteration as text in binary mode
+	public static final String SCHIMMY = "schimmy"; // Configuration key to merge join the mass with on disk graph partitions instead of shuffling the structure
+	public static final String STRUCTURE_PATH = "structurePath"; // Configuration key holding the location of the graph partitions in schimmy mode
+	public static final String FINALIZE = "finalize"; // Configuration key telling the Map to finalize the Pagerank of the previous iteration on read
+	public static final double MASS_SCALE = 1e9; // Scale used to pass the mass found in the Reduce tasks through a long counter
+	public static final String COMBINE_MEMORY = "combineMemory"; // Configuration key holding the megabytes the in-mapper combiner may use before flushing
+	public static final String DELTA = "delta"; // Configuration key to only send on the change in Pagerank of nodes which changed more than the epsilon
+	public static final String EPSILON = "epsilon"; // Configuration key holding the residual a node needs before it sends mass in delta mode
+	public static final String BALANCED = "balanced"; // Configuration key to partition the node ids in ranges with a balanced number of incoming messages
+	public static final String SAMPLE_RATE = "sampleRate"; // Configuration key holding the fraction of the nodes sampled to build the partition plan
+	public static final String PARTITION_PLAN = "partitionPlan"; // Configuration key holding the location of the partition plan
+	public static final String DELTA_CORRECTION = "deltaCorrection"; // Configuration key holding the uniform correction for the dangling mass of the previous iteration in delta mode
+	public static final String BLOCK = "block"; // Configuration key to let every Reduce task iterate over the links within its own partition, only shuffling the mass between partitions
+	public static final String LOCAL_SWEEPS = "localSweeps"; // Configuration key holding the maximal number of local sweeps per iteration in block mode
+	public static final String EXTRAPOLATE = "extrapolate"; // Configuration key holding every how many iterations an Aitken extrapolation is done, 0 for none
+	public static final String ITERATION = "iteration"; // Configuration key holding the current iteration, starting at 0
+	public static final int HISTORY_DEPTH = 2; // Number of earlier Pageranks an Aitken extrapolation needs
+	public static final String RESIDUAL_THRESHOLD = "residualThreshold"; // Configuration key holding the summed change in Pagerank below which the iterations stop, 0 to compare the total mass instead
+	public static final String MAX_CHANGE_PREFIX = "_maxChange-"; // Name of the side file holding the largest change in Pagerank found by a Map task, hidden from the next job
+	public static final String HUB_THRESHOLD = "hubThreshold"; // Configuration key holding the in-degree above which a node receives its mass through mirrors on other Reduce tasks, 0 for none
+	public static final String HUB_PATH = "hubPath"; // Configuration key holding the location of the hubs and their number of mirrors
+	public static final String MIRROR_INPUT = "mirrorInput"; // Configuration key holding the location of the partial sums of the mirrors of the previous iteration
+	public static final String MIRROR_OUTPUT = "mirrorOutput"; // Configuration key holding the location the Reduce tasks write the partial sums of the mirrors to
+	public static final int MAX_MIRRORS = 1024; // Upper bound on the number of mirrors of a hub, used to encode the mirror in its key
+	public static final long NODE_FLAG = 1L << 40; // Count the hub job sends for a node itself, above any in-degree
+	public static final String SEEDED = "seeded"; // Configuration key telling delta mode to start from the Pagerank and residual of the binary input, as written by the IncrementalPagerank
 	
-	public static class Map extends Mapper<LongWritable, Text, LongWritable, Node> {
+	public static class Map extends Mapper<LongWritable, Writable, LongWritable, PagerankMessage> {
 		
-		private HashMap<LongWritable, Double> massMessagesMap;
+		private boolean schimmy, finalize, delta, block, seeded;
+		private long numNodes;
+		private double lostPagerankJuicePart;
+		private double epsilon, deltaCorrection, sentMass; // Only used in delta mode
+		private AdjacencyWritable.Cursor cursor; // Reused to walk through the links of every node
+		private LongDoubleMap massMessagesMap;
+		private int maxMassMessages; // Number of entries after which the combiner is flushed
+		private LongWritable messageKey; // Reused for every message written
+		private PagerankMessage message;
+		private Partitioner<LongWritable, Writable> partitioner; // Only used in block mode, to find the links within a partition
+		private int numPartitions;
+		private boolean track, extrapolateNow;
+		private int historyDepth, taskPartition;
+		private LongDoubleMap hubs; // The number of mirrors per hub, empty without hubs
+		private LongDoubleMap mirrorMass; // The mass the mirrors of the hubs received in the previous iteration
+		private double change, maxChange; // The summed and the largest absolute change in Pagerank, compared to the previous iteration
+		private double[] history; // Reused to build the history send on
 		
 		@Override
-		public void setup(Context context) {
-			massMessagesMap = new HashMap<LongWritable, Double>();
+		@SuppressWarnings("unchecked")
+		public void setup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			messageKey = new LongWritable();
+			message = new PagerankMessage();
+			schimmy = conf.getBoolean(SCHIMMY, false);
+			finalize = conf.getBoolean(FINALIZE, false);
+			numNodes = conf.getInt("numNodes", 0);
+			lostPagerankJuicePart = conf.getFloat("missingMass", 0.0f) / numNodes;
+			delta = conf.getBoolean(DELTA, false);
+			seeded = conf.getBoolean(SEEDED, false);
+			epsilon = conf.getFloat(EPSILON, 0.0001f);
+			deltaCorrection = Double.parseDouble(conf.get(DELTA_CORRECTION, "0"));
+			sentMass = 0.0;
+			cursor = new AdjacencyWritable.Cursor();
+			maxMassMessages = LongDoubleMap.entriesForMemory(conf.getLong(COMBINE_MEMORY, 64) * 1024 * 1024);
+			massMessagesMap = new LongDoubleMap(Math.min(maxMassMessages, 1 << 16));
+			int extrapolationInterval = conf.getInt(EXTRAPOLATE, 0);
+			track = tracksHistory(conf);
+			extrapolateNow = extrapolationInterval > 0 && finalize && conf.getInt(ITERATION, 0) % extrapolationInterval == 0;
+			historyDepth = extrapolationInterval > 0 ? HISTORY_DEPTH : 1; // Only the previous Pagerank is needed to measure the change
+			taskPartition = conf.getInt("mapred.task.partition", 0);
+			change = 0.0;
+			maxChange = 0.0;
+			history = new double[HISTORY_DEPTH];
+			hubs = loadHubs(conf);
+			mirrorMass = finalize ? loadMirrorMass(conf) : new LongDoubleMap();
+			block = conf.getBoolean(BLOCK, false);
+			if (block) { // Use the partitioner of the job, so a link is local exactly when both ends go to the same Reduce task
+				try {
+					partitioner = (Partitioner<LongWritable, Writable>) ReflectionUtils.newInstance(context.getPartitionerClass(), conf);
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Could not load the partitioner: " + e.getMessage());
+				}
+				numPartitions = context.getNumReduceTasks();
+			}
 		}
 		
+		/**
+		 * Reads in a node, either as a binary Node object from
+		 *  a SequenceFile or as a line of text, and sends its
+		 *  structure and Pagerank mass on
+		 */
 		@Override
-		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-			Node node = new Node();
-			LongWritable[] links;
-			double partialPagerankMass = 0.0f;
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				emitNode((Node) value, context);
+				return;
+			}
 			
 			String[] lines = value.toString().split("\n");
 			for (String line : lines) { // Start reading in a line and converting it to a complete Node object
-				String terms[] = line.split("\\s+");
-				node.setNodeId(Long.parseLong(terms[0]));
-				node.setPagerank(Double.parseDouble(terms[1]));
-				links = new LongWritable[terms.length - 2];
-				if (links.length > 0) {
-					for (int i = 2; i < terms.length; i++) {
-						links[i - 2] = new LongWritable(Long.parseLong(terms[i]));
-					}
-					node.setAdjacencyList(links);
-					context.getCounter(MapCounters.STRUCTURES).increment(1); // New node containing a structure found
+				Node node = new Node();
+				node.parse(line);
+				emitNode(node, context);
+			}
+		}
+		
+		private void emitNode(Node node, Context context) throws IOException, InterruptedException {
+			double partialPagerankMass = 0.0f, sendPagerank = node.getPagerank().get();
+			boolean sendMass = node.hasStructure();
+			
+			if (delta) { // Only the residual is send on, and only if it is large enough
+				applyDelta(node);
+				sendPagerank = node.getResidual().get();
+				sendMass = node.hasStructure() && Math.abs(sendPagerank) > epsilon;
+				if (sendMass || !node.hasStructure()) { // Send on now, or a dangling node; whose residual has no effect on other nodes
+					node.setResidual(0.0f);
 				}
-				else {
-					context.getCounter(MapCounters.DANGLING_NODES).increment(1); // New node containing no structure found; thus Dangling-node
-				}
-				node.setAsCompleteNode();
-				
-				Node structure = new Node(); // Extract the structure from the Node object to send to the Reduce job
-				structure.setNodeId(node.getNodeId());
-				structure.setAdjacencyList(node.getAdjacencyList());
-				structure.setAsStructureNode();
-				context.write(structure.getNodeId(), structure);
+			}
+			else if (finalize) { // The previous iteration wrote the received mass only, hence add the mass of the mirrors, the jump factor and missing mass first
+				node.setPagerank(finalizePagerank(node.getPagerank().get() + mirrorMass.get(node.getNodeId().get(), 0.0), numNodes, lostPagerankJuicePart));
+			}
+			if (track) {
+				sendPagerank = trackHistory(node, context);
+			}
+			
+			if (node.hasStructure()) {
+				context.getCounter(MapCounters.STRUCTURES).increment(1); // New node containing a structure found
+			}
+			else {
+				context.getCounter(MapCounters.DANGLING_NODES).increment(1); // New node containing no structure found; thus Dangling-node
+			}
+			
+			if (!schimmy) { // In schimmy mode the Reduce job reads the structure from its graph partition instead
+				message.setStructure(node.hasStructure() ? node.getAdjacencyList() : null); // Extract the structure from the Node object to send to the Reduce job
+				context.write(node.getNodeId(), message);
 				context.getCounter(MapCounters.TOTAL_WRITES).increment(1); // New write done
-				
-				/** 
-				 * Create the mass messages to be send to the neighbors
-				 * Dangling nodes will not have a structure, since these
-				 *  exist from a NodeId and Pagerank only, thus need to 
-				 *  check whether the node contains a structure
-				 * Also, do in-mapper combining by moving the messages to an
-				 *  HashMap object and so lower the number of messages to be 
-				 *  send to the Reduce jobs
-				 */
-				if (node.hasStructure()) {
-					partialPagerankMass = node.getPagerank().get() / links.length;
-					for (LongWritable link : links) {
-						massMessagesMap.put(link, massMessagesMap.containsKey(link) ? massMessagesMap.get(link) + partialPagerankMass : partialPagerankMass);
+			}
+			if (delta) { // The Reduce job continues from the current Pagerank and residual
+				message.setState(node.getPagerank().get(), node.getResidual().get());
+				context.write(node.getNodeId(), message);
+				context.getCounter(MapCounters.TOTAL_WRITES).increment(1);
+			}
+			if (block) { // The Reduce job starts its local sweeps from the current Pagerank
+				message.setState(node.getPagerank().get(), 0.0);
+				context.write(node.getNodeId(), message);
+				context.getCounter(MapCounters.TOTAL_WRITES).increment(1);
+			}
+			
+			/** 
+			 * Create the mass messages to be send to the neighbors
+			 * Dangling nodes will not have a structure, since these
+			 *  exist from a NodeId and Pagerank only, thus need to 
+			 *  check whether the node contains a structure
+			 * Also, do in-mapper combining by moving the messages to an
+			 *  LongDoubleMap object and so lower the number of messages to be 
+			 *  send to the Reduce jobs; flush it once it holds its
+			 *  maximum number of entries, to bound the memory used
+			 */
+			if (sendMass) {
+				partialPagerankMass = (delta ? 1 - ALPHA : 1) * sendPagerank / node.getAdjacencyList().size(); // In delta mode the damping is applied when sending
+				if (delta) {
+					sentMass += sendPagerank;
+					context.getCounter(MapCounters.ACTIVE_VERTICES).increment(1);
+					context.getCounter(MapCounters.ACTIVE_EDGES).increment(node.getAdjacencyList().size());
+				}
+				int partition = block ? partitioner.getPartition(node.getNodeId(), message, numPartitions) : -1;
+				long localEdges = 0, mirrored = 0;
+				cursor.reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					long link = cursor.next();
+					if (!hubs.isEmpty()) { // A Map task sends all its mass for a hub to the same mirror, so it is still combined
+						int mirrors = (int) hubs.get(link, 0.0);
+						if (mirrors > 0) {
+							link = mirrorKey(link, taskPartition % mirrors);
+							mirrored++;
+						}
+					}
+					if (block) {
+						messageKey.set(link);
+						if (partitioner.getPartition(messageKey, message, numPartitions) == partition) { // Handled by the local sweeps of the Reduce task
+							localEdges++;
+							continue;
+						}
 					}
+					if (massMessagesMap.size() >= maxMassMessages) {
+						flush(context);
+					}
+					massMessagesMap.add(link, partialPagerankMass);
 				}
-				context.getCounter(MapCounters.NODES).increment(1); // Complete new node done
+				context.getCounter(MapCounters.LOCAL_EDGES).increment(localEdges);
+				context.getCounter(MapCounters.MIRRORED).increment(mirrored);
+				context.getCounter(MapCounters.MASS_CONTRIBUTIONS).increment(node.getAdjacencyList().size() - localEdges);
 			}
+			context.getCounter(MapCounters.NODES).increment(1); // Complete new node done
 		}
 		
-		@Override
-		public void cleanup(Context context) throws IOException, InterruptedException {
+		/**
+		 * Measures the change in Pagerank of a node, extrapolates
+		 *  its Pagerank in an extrapolation iteration, and sends
+		 *  on the updated history of the node. The history is
+		 *  restarted after an extrapolation, since the next
+		 *  iterations start from the extrapolated Pagerank.
+		 * @return the Pagerank to send on
+		 */
+		private double trackHistory(Node node, Context context) throws IOException, InterruptedException {
+			double pagerank = node.getPagerank().get();
+			double[] earlier = node.getHistory();
+			if (earlier.length > 0) {
+				double nodeChange = Math.abs(pagerank - earlier[0]);
+				change += nodeChange;
+				maxChange = Math.max(maxChange, nodeChange);
+			}
+			int depth = 0;
+			if (extrapolateNow && earlier.length >= HISTORY_DEPTH) {
+				double extrapolated = aitken(pagerank, earlier[0], earlier[1]);
+				if (extrapolated != pagerank) {
+					pagerank = extrapolated;
+					node.setPagerank(pagerank);
+					context.getCounter(MapCounters.EXTRAPOLATED).increment(1);
+				}
+			}
+			else {
+				for (; depth < historyDepth - 1 && depth < earlier.length; depth++) { // Shift the history by one
+					history[depth + 1] = earlier[depth];
+				}
+			}
+			history[0] = pagerank;
+			message.setHistory(history, depth + 1);
+			context.write(node.getNodeId(), message);
+			context.getCounter(MapCounters.TOTAL_WRITES).increment(1);
+			return pagerank;
+		}
+		
+		/**
+		 * Brings a node up to date in delta mode. Every node starts
+		 *  with the jump factor and the mass of an empty graph as
+		 *  both its Pagerank and its residual. Afterwards the
+		 *  correction for the mass send by the previous iteration,
+		 *  which every node would have lost through the missing
+		 *  mass, is added to both. A seeded graph starts from the
+		 *  Pagerank and residual its nodes already hold instead.
+		 */
+		private void applyDelta(Node node) {
+			if (!finalize && !seeded) { // First iteration
+				double initial = finalizePagerank(0.0, numNodes, 1.0);
+				node.setPagerank(initial);
+				node.setResidual(initial);
+			}
+			else if (finalize) {
+				node.setPagerank(node.getPagerank().get() + deltaCorrection);
+				node.setResidual(node.getResidual().get() + deltaCorrection);
+			}
+		}
+		
+		/**
+		 * Sends the partial Pagerank mass summed up so far to
+		 *  the neighbors and empties the combiner
+		 */
+		private void flush(Context context) throws IOException, InterruptedException {
 			context.getCounter(MapCounters.MASS_WRITTEN).increment(massMessagesMap.size()); // Number of Mass messages which will be send
 			context.getCounter(MapCounters.TOTAL_WRITES).increment(massMessagesMap.size());
-			for (Entry<LongWritable, Double> entry : massMessagesMap.entrySet()) { // Send partial Pagerank mass from this node to its neighbors
-				Node mass = new Node();
-				mass.setNodeId(entry.getKey());
-				mass.setPagerank(entry.getValue());
-				mass.setAsMassNode();
-				context.write(mass.getNodeId(), mass);
+			context.getCounter(MapCounters.FLUSHES).increment(1);
+			for (int slot = massMessagesMap.nextSlot(-1); slot >= 0; slot = massMessagesMap.nextSlot(slot)) {
+				messageKey.set(massMessagesMap.keyAt(slot));
+				message.setMass(massMessagesMap.valueAt(slot));
+				context.write(messageKey, message);
+			}
+			massMessagesMap.clear();
+		}
+		
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+			context.getCounter(MapCounters.SCALED_SENT).increment(Math.round(sentMass * MASS_SCALE));
+			context.getCounter(MapCounters.SCALED_CHANGE).increment(Math.round(change * MASS_SCALE));
+			if (track) { // Counters can only be summed, and a job has a limited number of them, hence every task writes its maximum in a file of its own
+				writeMaxChange(context, taskPartition, maxChange);
 			}
-			massMessagesMap.clear(); // Clear HashMap to save memory
 		}
 	}
 	
-	public static class Partition extends Partitioner<LongWritable, Node> {
+	public static class StructureMap extends Mapper<LongWritable, Writable, LongWritable, Node> {
 		
+		/**
+		 * Reads in a node and only sends on its structure,
+		 *  so the graph partitions can be written once for
+		 *  the merge join done in schimmy mode
+		 */
 		@Override
-		public int getPartition(LongWritable nodeId, Node node, int numPartitions) {
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				emitStructure((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				emitStructure(node, context);
+			}
+		}
+		
+		private void emitStructure(Node node, Context context) throws IOException, InterruptedException {
+			Node structure = new Node();
+			structure.setNodeId(node.getNodeId().get());
+			structure.setAdjacencyList(node.getAdjacencyList());
+			structure.setAsStructureNode();
+			context.write(structure.getNodeId(), structure);
+			context.getCounter(node.hasStructure() ? MapCounters.STRUCTURES : MapCounters.DANGLING_NODES).increment(1);
+			context.getCounter(MapCounters.NODES).increment(1);
+		}
+	}
+	
+	public static class Partition extends Partitioner<LongWritable, Writable> {
+		
+		@Override
+		public int getPartition(LongWritable nodeId, Writable value, int numPartitions) {
 			if (numPartitions == 0) {
 				return 0;
 			}
-			return (int) (nodeId.get() % numPartitions);
+			long id = nodeId.get();
+			if (id < 0) { // A mirror, placed on the partitions following the one of its hub
+				return (int) ((mirrorHub(id) % numPartitions + 1 + mirrorIndex(id)) % numPartitions);
+			}
+			return (int) (id % numPartitions);
 		}
 	}
 	
-	public static class Reduce extends Reducer<LongWritable, Node, LongWritable, Text> {
+	public static class SampleMap extends Mapper<LongWritable, Writable, LongWritable, LongWritable> {
 		
-		private double totalMass; // Global variable to store the mass found in every reduce() call
+		private int sampleThreshold;
+		private LongWritable one;
+		
+		@Override
+		public void setup(Context context) {
+			sampleThreshold = (int) (context.getConfiguration().getFloat(SAMPLE_RATE, 0.01f) * (1 << 24));
+			one = new LongWritable(1);
+		}
+		
+		/**
+		 * Reads in a node and, if it is sampled, sends on one
+		 *  unit of load for the node itself and one for every
+		 *  node it links to, as each of those receives a message
+		 */
+		@Override
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				sample((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				sample(node, context);
+			}
+		}
+		
+		private void sample(Node node, Context context) throws IOException, InterruptedException {
+			long hash = node.getNodeId().get() * 0x9E3779B97F4A7C15L; // Hash the id, so the same nodes are sampled on every run
+			if ((int) (hash >>> 40) >= sampleThreshold) {
+				return;
+			}
+			context.write(node.getNodeId(), one);
+			if (node.hasStructure()) {
+				LongWritable link = new LongWritable();
+				AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor().reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					link.set(cursor.next());
+					context.write(link, one);
+				}
+			}
+			context.getCounter(MapCounters.NODES).increment(1);
+		}
+	}
+	
+	public static class SampleCombine extends Reducer<LongWritable, LongWritable, LongWritable, LongWritable> {
+		
+		@Override
+		public void reduce(LongWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
+			long load = 0;
+			for (LongWritable value : values) {
+				load += value.get();
+			}
+			context.write(key, new LongWritable(load));
+		}
+	}
+	
+	public static class PlanReduce extends Reducer<LongWritable, LongWritable, LongWritable, NullWritable> {
+		
+		private long[] ids, loads; // The sampled load per node id, in sorted order
+		private int size;
+		private long totalLoad;
+		
+		@Override
+		public void setup(Context context) {
+			ids = new long[1024];
+			loads = new long[1024];
+			size = 0;
+			totalLoad = 0;
+		}
+		
+		@Override
+		public void reduce(LongWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
+			long load = 0;
+			for (LongWritable value : values) {
+				load += value.get();
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				loads = Arrays.copyOf(loads, size * 2);
+			}
+			ids[size] = key.get();
+			loads[size] = load;
+			size++;
+			totalLoad += load;
+		}
+		
+		/**
+		 * Walks through the sampled load in order of node id and
+		 *  writes a split point every time another share of the
+		 *  total load has been passed; a Reduce task of phase 1
+		 *  receives the node ids from one split point up to the next
+		 */
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			int numPartitions = context.getConfiguration().getInt("numPartitions", 1);
+			long cumulativeLoad = 0;
+			int partition = 1;
+			for (int i = 0; i < size && partition < numPartitions; i++) {
+				cumulativeLoad += loads[i];
+				while (partition < numPartitions && cumulativeLoad >= totalLoad * partition / numPartitions && i + 1 < size) {
+					context.write(new LongWritable(ids[i + 1]), NullWritable.get()); // Node ids from this point on go to the next partition
+					partition++;
+				}
+			}
+			for (; partition < numPartitions; partition++) { // Too few samples, hence the last partitions stay empty
+				context.write(new LongWritable(Long.MAX_VALUE), NullWritable.get());
+			}
+		}
+	}
+	
+	public static class HubMap extends Mapper<LongWritable, Writable, LongWritable, LongWritable> {
+		
+		private LongWritable self, one;
 		
 		@Override
 		public void setup(Context context) {
+			self = new LongWritable(NODE_FLAG);
+			one = new LongWritable(1);
+		}
+		
+		/**
+		 * Reads in a node and sends on a flag for the node itself,
+		 *  so only nodes of the graph become hubs, and one
+		 *  incoming link for every node it links to
+		 */
+		@Override
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				countLinks((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				countLinks(node, context);
+			}
+		}
+		
+		private void countLinks(Node node, Context context) throws IOException, InterruptedException {
+			context.write(node.getNodeId(), self);
+			if (node.hasStructure()) {
+				LongWritable link = new LongWritable();
+				AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor().reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					link.set(cursor.next());
+					context.write(link, one);
+				}
+			}
+			context.getCounter(MapCounters.NODES).increment(1);
+		}
+	}
+	
+	public static class HubReduce extends Reducer<LongWritable, LongWritable, LongWritable, LongWritable> {
+		
+		private int hubThreshold, maxMirrors;
+		private LongWritable outValue;
+		
+		@Override
+		public void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			hubThreshold = conf.getInt(HUB_THRESHOLD, 0);
+			maxMirrors = Math.min(conf.getInt("numPartitions", 1) - 1, MAX_MIRRORS); // The partition of the hub itself is left out
+			outValue = new LongWritable();
+		}
+		
+		/**
+		 * Writes a node with an in-degree above the threshold
+		 *  as a hub, with one mirror per threshold of incoming
+		 *  links, up to one per other Reduce task
+		 */
+		@Override
+		public void reduce(LongWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
+			long load = 0;
+			for (LongWritable value : values) {
+				load += value.get();
+			}
+			if (load < NODE_FLAG) { // Linked to, but not part of the graph
+				return;
+			}
+			long inDegree = load - NODE_FLAG;
+			if (inDegree <= hubThreshold) {
+				return;
+			}
+			int mirrors = (int) Math.min(maxMirrors, (inDegree + hubThreshold - 1) / hubThreshold);
+			if (mirrors < 2) { // Too few Reduce tasks to spread the hub over
+				return;
+			}
+			outValue.set(mirrors);
+			context.write(key, outValue);
+			context.getCounter(ReduceCounters.HUBS).increment(1);
+		}
+	}
+	
+	/**
+	 * Partitions the node ids in ranges, as given by the
+	 *  split points of the partition plan. The ranges keep
+	 *  the node ids sorted per partition, hence the plan can
+	 *  be used for the graph partitions of schimmy mode too.
+	 */
+	public static class BalancedPartition extends Partitioner<LongWritable, Writable> implements Configurable {
+		
+		private Configuration conf;
+		private long[] splitPoints;
+		
+		@Override
+		public void setConf(Configuration conf) {
+			this.conf = conf;
+			try {
+				splitPoints = loadPartitionPlan(conf, conf.get(PARTITION_PLAN));
+			} catch (IOException e) {
+				throw new RuntimeException("Could not read the partition plan " + conf.get(PARTITION_PLAN), e);
+			}
+		}
+		
+		@Override
+		public Configuration getConf() {
+			return conf;
+		}
+		
+		@Override
+		public int getPartition(LongWritable nodeId, Writable value, int numPartitions) {
+			long id = nodeId.get();
+			if (id < 0) { // A mirror, placed on the partitions following the one of its hub
+				return (rangeOf(mirrorHub(id), numPartitions) + 1 + mirrorIndex(id)) % numPartitions;
+			}
+			return rangeOf(id, numPartitions);
+		}
+		
+		private int rangeOf(long id, int numPartitions) {
+			int low = 0, high = splitPoints.length; // Find the number of split points smaller than or equal to the id
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (splitPoints[middle] <= id) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return Math.min(low, numPartitions - 1);
+		}
+	}
+	
+	public static class Reduce extends Reducer<LongWritable, PagerankMessage, LongWritable, Writable> {
+		
+		private boolean binary, delta;
+		private double totalMass; // Global variable to store the mass found in every reduce() call
+		private SequenceFile.Reader structureReader; // Reader over the graph partition of this reducer, only used in schimmy mode
+		private LongWritable structureKey;
+		private Node structureNode;
+		private boolean hasStructureNode;
+		private AdjacencyWritable links; // Reused to hold the structure of the current node
+		private double[] history; // The history of the current node, when extrapolating
+		private LongDoubleMap mirrorMass; // The mass received by the mirrors of this Reduce task, per hub
+		private boolean block; // Block mode: the nodes of the partition are kept, to sweep over the local links in cleanup()
+		private Partitioner<LongWritable, Writable> partitioner;
+		private int partition, numPartitions, blockSize, maxSweeps;
+		private long numNodes;
+		private double lostPagerankJuicePart;
+		private long[] blockIds; // Sorted, since the keys arrive in sorted order
+		private double[] blockPageranks, blockMass; // The current Pagerank and the mass received from other partitions
+		private AdjacencyWritable[] blockLinks;
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public void setup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			binary = binaryIntermediates(conf);
+			delta = conf.getBoolean(DELTA, false);
 			totalMass = 0.0f;
+			links = new AdjacencyWritable();
+			mirrorMass = new LongDoubleMap();
+			block = conf.getBoolean(BLOCK, false);
+			if (block) {
+				try {
+					partitioner = (Partitioner<LongWritable, Writable>) ReflectionUtils.newInstance(context.getPartitionerClass(), conf);
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Could not load the partitioner: " + e.getMessage());
+				}
+				partition = conf.getInt("mapred.task.partition", 0);
+				numPartitions = context.getNumReduceTasks();
+				maxSweeps = conf.getInt(LOCAL_SWEEPS, 5);
+				numNodes = conf.getInt("numNodes", 0);
+				lostPagerankJuicePart = conf.getFloat("missingMass", 0.0f) / numNodes;
+				blockIds = new long[1024];
+				blockPageranks = new double[1024];
+				blockMass = new double[1024];
+				blockLinks = new AdjacencyWritable[1024];
+				blockSize = 0;
+			}
+			if (conf.getBoolean(SCHIMMY, false)) { // Open the graph partition holding the same node ids as this reducer receives
+				Path partition = new Path(conf.get(STRUCTURE_PATH) + "/" + String.format("part-r-%05d", conf.getInt("mapred.task.partition", 0)));
+				structureReader = new SequenceFile.Reader(FileSystem.get(conf), partition, conf);
+				structureKey = new LongWritable();
+				structureNode = new Node();
+				hasStructureNode = structureReader.next(structureKey, structureNode);
+			}
 		}
 		
 		@Override
-		public void reduce(LongWritable key, Iterable<Node> values, Context context) throws IOException, InterruptedException {
+		public void reduce(LongWritable key, Iterable<PagerankMessage> values, Context context) throws IOException, InterruptedException {
 			long nodeId = key.get();
-			double pagerank = 0.0f;
-			LongWritable[] links = new LongWritable[0];
+			double pagerank = 0.0f, residual = 0.0f, receivedMass = 0.0f;
+			links.clear();
+			history = null;
 			
-			for (Node node : values) {
-				if (node.isMassNode()) { // Increment current nodes Pagerank with received Pagerank from other pages
-					pagerank += node.getPagerank().get();
-					context.getCounter(ReduceCounters.MASS_READ).increment(1);
+			if (nodeId < 0) { // A mirror of a hub only sums up its mass; the next pass adds it to the hub
+				for (PagerankMessage message : values) {
+					receivedMass += message.getMass();
+					context.getCounter(ReduceCounters.MIRRORS_READ).increment(1);
+				}
+				totalMass += receivedMass;
+				mirrorMass.add(mirrorHub(nodeId), receivedMass);
+				return;
+			}
+			
+			if (structureReader != null) { // Merge join: write out the nodes which did not receive any mass, up till the current key
+				while (hasStructureNode && structureKey.get() < nodeId) {
+					if (block) {
+						addToBlock(structureKey.get(), 0.0f, 0.0f, mergeStructure(context));
+					}
+					else {
+						writeNode(structureKey.get(), 0.0f, 0.0f, mergeStructure(context), context);
+					}
+					hasStructureNode = structureReader.next(structureKey, structureNode);
 				}
-				else if (node.isStructureNode() && node.hasStructure()) { // Graph structure found
-					String[] adjacencyStringList = node.getAdjacencyList().toStrings();
-					links = new LongWritable[adjacencyStringList.length];
-					for (int i = 0; i < adjacencyStringList.length; i++) {
-						links[i] = new LongWritable(Long.parseLong(adjacencyStringList[i]));
+				if (hasStructureNode && structureKey.get() == nodeId) {
+					AdjacencyWritable structure = mergeStructure(context);
+					if (structure != null) { // Copy, since the next read of the graph partition reuses the list
+						links.set(structure);
 					}
+					hasStructureNode = structureReader.next(structureKey, structureNode);
+				}
+			}
+			
+			for (PagerankMessage message : values) {
+				if (message.isMass()) { // Increment current nodes Pagerank with received Pagerank from other pages
+					receivedMass += message.getMass();
+					context.getCounter(ReduceCounters.MASS_READ).increment(1);
+				}
+				else if (message.isState()) { // Delta and block mode: continue from the Pagerank and residual the node had
+					pagerank = message.getMass();
+					residual = message.getResidual();
+				}
+				else if (message.isHistory()) { // Residual tracking and extrapolation: keep the Pageranks of earlier iterations with the node
+					history = Arrays.copyOf(message.getMasses(), message.getWidth());
+				}
+				else if (!message.getAdjacencyList().isEmpty()) { // Graph structure found | readFields() reuses the list of the value, hence copy it
+					links.set(message.getAdjacencyList());
 					context.getCounter(ReduceCounters.STRUCTURES).increment(1);
 				}
-				else if (node.isStructureNode()) { // Graph structure found, but not outgoing links; hence Dangling-node
+				else { // Graph structure found, but not outgoing links; hence Dangling-node
 					context.getCounter(ReduceCounters.DANGLING_NODES).increment(1);
 				}
 				context.getCounter(ReduceCounters.TOTAL_READS).increment(1); // New read done
 			}
 			
-			totalMass += pagerank;
-			
+			if (block) { // Written once the local sweeps are done
+				addToBlock(nodeId, pagerank, receivedMass, links);
+				return;
+			}
+			totalMass += receivedMass;
+			pagerank += receivedMass;
+			if (delta) { // The received mass still has to be send on
+				residual += receivedMass;
+			}
+			writeNode(nodeId, pagerank, residual, links, context);
+		}
+		
+		/**
+		 * Takes the adjacency list of the current node of the graph
+		 *  partition and counts it as a structure read from disk
+		 * @return the adjacency list of the current structure node, or null for a dangling node
+		 */
+		private AdjacencyWritable mergeStructure(Context context) {
+			context.getCounter(ReduceCounters.STRUCTURES_MERGED).increment(1);
+			if (structureNode.hasStructure()) {
+				context.getCounter(ReduceCounters.STRUCTURES).increment(1);
+				return structureNode.getAdjacencyList(); // Only valid until the next read of the graph partition
+			}
+			context.getCounter(ReduceCounters.DANGLING_NODES).increment(1);
+			return null;
+		}
+		
+		/**
+		 * Keeps a node of the partition for the local sweeps
+		 * @param nodeId: the id of the node
+		 * @param pagerank: the Pagerank the node had at the start of this iteration
+		 * @param receivedMass: the mass received from the other partitions
+		 * @param links: the links of the node, copied | null for a dangling node
+		 */
+		private void addToBlock(long nodeId, double pagerank, double receivedMass, AdjacencyWritable links) {
+			if (blockSize == blockIds.length) {
+				blockIds = Arrays.copyOf(blockIds, blockSize * 2);
+				blockPageranks = Arrays.copyOf(blockPageranks, blockSize * 2);
+				blockMass = Arrays.copyOf(blockMass, blockSize * 2);
+				blockLinks = Arrays.copyOf(blockLinks, blockSize * 2);
+			}
+			blockIds[blockSize] = nodeId;
+			blockPageranks[blockSize] = pagerank;
+			blockMass[blockSize] = receivedMass;
+			blockLinks[blockSize] = new AdjacencyWritable();
+			if (links != null) {
+				blockLinks[blockSize].set(links);
+			}
+			blockSize++;
+		}
+		
+		/**
+		 * Runs Gauss-Seidel sweeps over the links within the
+		 *  partition, as done by BlockRank. The mass from other
+		 *  partitions is fixed for this iteration, while the
+		 *  local mass is pulled from the Pageranks updated so far
+		 *  in the current sweep. Afterwards every node is written
+		 *  with its received mass, which the next phase 1 Map
+		 *  finalizes as usual. Links to nodes missing from the
+		 *  partition lose their mass, which ends up in the missing mass.
+		 */
+		private void sweepBlock(Context context) throws IOException, InterruptedException {
+			int[] outDegrees = new int[blockSize];
+			int[] inOffsets = new int[blockSize + 1]; // Local links, per destination, as the positions of their sources
+			LongWritable link = new LongWritable();
+			AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor();
+			for (int pass = 0; pass < 2; pass++) { // First count the local links per destination, then fill them in
+				int[] inSources = pass == 0 ? null : new int[inOffsets[blockSize]];
+				int[] filled = pass == 0 ? null : Arrays.copyOf(inOffsets, blockSize);
+				for (int u = 0; u < blockSize; u++) {
+					outDegrees[u] = blockLinks[u].size();
+					cursor.reset(blockLinks[u]);
+					while (cursor.hasNext()) {
+						link.set(cursor.next());
+						if (partitioner.getPartition(link, null, numPartitions) != partition) {
+							continue;
+						}
+						int v = Arrays.binarySearch(blockIds, 0, blockSize, link.get());
+						if (v < 0) {
+							continue;
+						}
+						if (pass == 0) {
+							inOffsets[v + 1]++;
+						}
+						else {
+							inSources[filled[v]++] = u;
+						}
+					}
+				}
+				if (pass == 0) {
+					for (int v = 0; v < blockSize; v++) {
+						inOffsets[v + 1] += inOffsets[v];
+					}
+				}
+				else {
+					sweep(context, outDegrees, inOffsets, inSources);
+				}
+			}
+		}
+		
+		private void sweep(Context context, int[] outDegrees, int[] inOffsets, int[] inSources) throws IOException, InterruptedException {
+			for (int sweep = 0; sweep < maxSweeps; sweep++) {
+				double change = 0.0;
+				for (int v = 0; v < blockSize; v++) {
+					double pagerank = finalizePagerank(blockMass[v] + localMass(v, outDegrees, inOffsets, inSources), numNodes, lostPagerankJuicePart);
+					change += Math.abs(pagerank - blockPageranks[v]);
+					blockPageranks[v] = pagerank;
+				}
+				context.getCounter(ReduceCounters.LOCAL_SWEEPS).increment(1);
+				if (change < CONVERGENCE_POINT) { // The partition converged locally
+					break;
+				}
+			}
+			for (int v = 0; v < blockSize; v++) {
+				double receivedMass = blockMass[v] + localMass(v, outDegrees, inOffsets, inSources);
+				totalMass += receivedMass;
+				writeNode(blockIds[v], receivedMass, 0.0f, blockLinks[v], context);
+			}
+		}
+		
+		private double localMass(int v, int[] outDegrees, int[] inOffsets, int[] inSources) {
+			double mass = 0.0;
+			for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+				int u = inSources[i];
+				mass += blockPageranks[u] / outDegrees[u];
+			}
+			return mass;
+		}
+		
+		/**
+		 * Writes the partial sums of the mirrors of this Reduce
+		 *  task to a file of its own, which is small, since it
+		 *  only holds hubs
+		 */
+		private void writeMirrorMass(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			Path mirrorFile = new Path(conf.get(MIRROR_OUTPUT) + "/" + String.format("part-r-%05d", conf.getInt("mapred.task.partition", 0)));
+			BufferedWriter bwr = new BufferedWriter(new OutputStreamWriter(FileSystem.get(conf).create(mirrorFile, true)));
+			for (int slot = mirrorMass.nextSlot(-1); slot >= 0; slot = mirrorMass.nextSlot(slot)) {
+				bwr.write(mirrorMass.keyAt(slot) + "\t" + mirrorMass.valueAt(slot) + "\n");
+			}
+			bwr.close();
+		}
+		
+		private void writeNode(long nodeId, double pagerank, double residual, AdjacencyWritable links, Context context) throws IOException, InterruptedException {
 			Node destinationNode = new Node();
 			destinationNode.setNodeId(nodeId);
 			destinationNode.setPagerank(pagerank);
+			destinationNode.setResidual(residual);
 			destinationNode.setAdjacencyList(links);
-			context.write(destinationNode.getNodeId(), new Text(destinationNode.structure()));
+			if (history != null) {
+				destinationNode.setHistory(history);
+			}
+			destinationNode.setAsCompleteNode();
+			if (binary) {
+				context.write(destinationNode.getNodeId(), destinationNode);
+			}
+			else {
+				context.write(destinationNode.getNodeId(), new Text(destinationNode.structure()));
+			}
 			context.getCounter(ReduceCounters.NODES).increment(1); // Complete new node done
 		}
 		
 		@Override
 		/**
-		 *  Write to a file the amount of PageRank mass we've seen in this reducer
+		 *  Pass the amount of PageRank mass we've seen in this reducer on through a counter
 		 */
-		public void cleanup(Context context) throws IOException {
-			Configuration conf = context.getConfiguration();
-			String taskId = conf.get("mapred.task.id");
-			String path = conf.get("PageRankMassPath");
-			FileSystem fs = FileSystem.get(conf);
-			FSDataOutputStream out = fs.create(new Path(path + "/" + taskId), false);
-			out.writeDouble(totalMass);
-			out.close();
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			if (structureReader != null) { // Write out the remaining nodes of the graph partition, which received no mass
+				while (hasStructureNode) {
+					if (block) {
+						addToBlock(structureKey.get(), 0.0f, 0.0f, mergeStructure(context));
+					}
+					else {
+						writeNode(structureKey.get(), 0.0f, 0.0f, mergeStructure(context), context);
+					}
+					hasStructureNode = structureReader.next(structureKey, structureNode);
+				}
+				structureReader.close();
+			}
+			if (block) {
+				sweepBlock(context);
+			}
+			if (!mirrorMass.isEmpty()) {
+				writeMirrorMass(context);
+			}
+			
+			context.getCounter(ReduceCounters.SCALED_MASS).increment(Math.round(totalMass * MASS_SCALE));
 		}
 	}
 	
-	public static class MassDistributionMap extends Mapper<LongWritable, Text, LongWritable, Text> {
+	public static class MassDistributionMap extends Mapper<LongWritable, Writable, LongWritable, Writable> {
 		
+		private boolean textOutput, delta, track;
 		private long numNodes;
-		private double lostPagerankJuice, lostPagerankJuicePart;
+		private double lostPagerankJuice, lostPagerankJuicePart, deltaCorrection;
+		private int taskPartition;
+		private double change, maxChange; // The change in Pagerank of the last iteration
+		private LongDoubleMap mirrorMass;
 		
 		@Override
-		public void setup(Context context) {
+		public void setup(Context context) throws IOException {
 			Configuration conf = context.getConfiguration();
+			mirrorMass = loadMirrorMass(conf);
+			textOutput = conf.getBoolean("writeText", true);
+			track = tracksHistory(conf);
+			taskPartition = conf.getInt("mapred.task.partition", 0);
+			change = 0.0;
+			maxChange = 0.0;
+			delta = conf.getBoolean(DELTA, false);
+			deltaCorrection = Double.parseDouble(conf.get(DELTA_CORRECTION, "0"));
 			numNodes = conf.getInt("numNodes", 0);
 			lostPagerankJuice = conf.getFloat("missingMass", 0.0f);
 			lostPagerankJuicePart = lostPagerankJuice / numNodes;
 		}
 		
 		@Override
-		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-			Node node = new Node();
-			LongWritable[] links;
-			double pagerank = 0.0f;
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				distributeMass((Node) value, context);
+				return;
+			}
+			
 			String[] lines = value.toString().split("\n");
 			for (String line : lines) {
-				String terms[] = line.split("\\s+");
-				node.setNodeId(Long.parseLong(terms[0]));
-				pagerank = Double.parseDouble(terms[1]);
-				
-				links = new LongWritable[terms.length - 2];
-				if (links.length > 0) {
-					for (int i = 2; i < terms.length; i++) {
-						links[i - 2] = new LongWritable(Long.parseLong(terms[i]));
-					}
-					node.setAdjacencyList(links);
-					context.getCounter(MapCounters.STRUCTURES).increment(1); // New structure found
-				}
-				else {
-					context.getCounter(MapCounters.DANGLING_NODES).increment(1); // No links found, hence a dangling node
-				}
-				
-				double jump = ALPHA / numNodes; // Finalize the computation of the Pagerank iteration and add a part of the missing mass
-				double link = (1 - ALPHA) * (pagerank + lostPagerankJuicePart);
-				pagerank = jump + link;
-				node.setPagerank(pagerank);
+				Node node = new Node();
+				node.parse(line);
+				distributeMass(node, context);
+			}
+		}
+		
+		private void distributeMass(Node node, Context context) throws IOException, InterruptedException {
+			if (node.hasStructure()) {
+				context.getCounter(MapCounters.STRUCTURES).increment(1); // New structure found
+			}
+			else {
+				context.getCounter(MapCounters.DANGLING_NODES).increment(1); // No links found, hence a dangling node
+			}
+			
+			if (delta) { // The Pagerank is kept up to date, apart from the correction of the last iteration
+				node.setPagerank(node.getPagerank().get() + deltaCorrection);
+			}
+			else {
+				node.setPagerank(finalizePagerank(node.getPagerank().get() + mirrorMass.get(node.getNodeId().get(), 0.0), numNodes, lostPagerankJuicePart));
+			}
+			if (track && node.getHistory().length > 0) { // Measure the change of the last iteration, as the Map of phase 1 does for the others
+				double nodeChange = Math.abs(node.getPagerank().get() - node.getHistory()[0]);
+				change += nodeChange;
+				maxChange = Math.max(maxChange, nodeChange);
+			}
+			if (textOutput) {
 				context.write(node.getNodeId(), new Text(node.structure()));
-				context.getCounter(MapCounters.TOTAL_WRITES).increment(1); // New write done
-				context.getCounter(MapCounters.NODES).increment(1); // Complete new node done
 			}
+			else {
+				context.write(node.getNodeId(), node);
+			}
+			context.getCounter(MapCounters.TOTAL_WRITES).increment(1); // New write done
+			context.getCounter(MapCounters.NODES).increment(1); // Complete new node done
+		}
+		
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			if (track) {
+				context.getCounter(MapCounters.SCALED_CHANGE).increment(Math.round(change * MASS_SCALE));
+				writeMaxChange(context, taskPartition, maxChange);
+			}
+		}
+	}
+	
+	/**
+	 * Finalize the computation of a Pagerank iteration by adding
+	 *  the random jump factor and a part of the missing mass
+	 * @param pagerank: the Pagerank mass a node received
+	 * @param numNodes: the total number of nodes in the graph
+	 * @param lostPagerankJuicePart: the share of the missing mass per node
+	 * @return the final Pagerank of the node
+	 */
+	public static double finalizePagerank(double pagerank, long numNodes, double lostPagerankJuicePart) {
+		double jump = ALPHA / numNodes;
+		double link = (1 - ALPHA) * (pagerank + lostPagerankJuicePart);
+		return jump + link;
+	}
+	
+	/**
+	 * Extrapolates the Pagerank of a node from its last three
+	 *  iterations with Aitken's delta-squared process; nodes for
+	 *  which the differences do not shrink keep their Pagerank
+	 * @param pagerank: the Pagerank of the current iteration
+	 * @param previous: the Pagerank of the previous iteration
+	 * @param beforePrevious: the Pagerank of the iteration before the previous one
+	 * @return the extrapolated Pagerank
+	 */
+	public static double aitken(double pagerank, double previous, double beforePrevious) {
+		double step = pagerank - previous;
+		double curvature = pagerank - 2 * previous + beforePrevious;
+		if (Math.abs(curvature) < 1e-15 || Math.abs(step) >= Math.abs(previous - beforePrevious)) {
+			return pagerank;
+		}
+		double extrapolated = pagerank - step * step / curvature;
+		return extrapolated > 0 ? extrapolated : pagerank;
+	}
+	
+	/**
+	 * Delta mode keeps a residual per node, and residual tracking
+	 *  and extrapolation the Pageranks of earlier iterations,
+	 *  which the text format can not hold, hence they always
+	 *  write the iterations in between as binary Node objects
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @return whether the output of phase 1 is stored as binary Node objects
+	 */
+	public static boolean binaryIntermediates(Configuration conf) {
+		return conf.getBoolean(BINARY, false) || conf.getBoolean(DELTA, false) || tracksHistory(conf);
+	}
+	
+	/**
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @return whether the nodes carry the Pagerank of the previous iteration,
+	 * 	to measure the change in Pagerank or to extrapolate
+	 */
+	public static boolean tracksHistory(Configuration conf) {
+		return conf.getInt(EXTRAPOLATE, 0) > 0 || conf.getFloat(RESIDUAL_THRESHOLD, 0.0f) > 0;
+	}
+	
+	/**
+	 * Writes the largest change in Pagerank found by a task as a
+	 *  side file of the task, moved into the job output once the
+	 *  task succeeds
+	 * @param context: the Context of the task
+	 * @param taskPartition: the index of the task
+	 * @param maxChange: the largest change in Pagerank of a single node
+	 * @throws IOException, InterruptedException for writing the file
+	 */
+	public static void writeMaxChange(TaskInputOutputContext<?, ?, ?, ?> context, int taskPartition, double maxChange) throws IOException, InterruptedException {
+		Path file = new Path(FileOutputFormat.getWorkOutputPath(context), String.format("%s%05d", MAX_CHANGE_PREFIX, taskPartition));
+		FSDataOutputStream out = file.getFileSystem(context.getConfiguration()).create(file, true);
+		try {
+			out.writeDouble(maxChange);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * @param conf: the Configuration to reach the file system with
+	 * @param outputPath: the output of a job which measured the change in Pagerank
+	 * @return the largest change in Pagerank of a single node
+	 * @throws IOException for reading the side files of the tasks
+	 */
+	public static double maxChange(Configuration conf, String outputPath) throws IOException {
+		double max = 0.0;
+		FileSystem fs = FileSystem.get(conf);
+		FileStatus[] files = fs.globStatus(new Path(outputPath, MAX_CHANGE_PREFIX + "*"));
+		for (FileStatus f : files != null ? files : new FileStatus[0]) {
+			FSDataInputStream in = fs.open(f.getPath());
+			try {
+				max = Math.max(max, in.readDouble());
+			} finally {
+				in.close();
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * @param hub: the id of the hub
+	 * @param index: the index of the mirror, below MAX_MIRRORS
+	 * @return the key of the mirror, which is negative, hence never a node id
+	 */
+	public static long mirrorKey(long hub, int index) {
+		return -(hub * MAX_MIRRORS + index) - 1;
+	}
+	
+	public static long mirrorHub(long mirrorKey) {
+		return (-mirrorKey - 1) / MAX_MIRRORS;
+	}
+	
+	public static int mirrorIndex(long mirrorKey) {
+		return (int) ((-mirrorKey - 1) % MAX_MIRRORS);
+	}
+	
+	/**
+	 * Reads the hubs found by the hub job
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @return the number of mirrors per hub, empty if no hubs are used
+	 * @throws IOException for reading the files
+	 */
+	public static LongDoubleMap loadHubs(Configuration conf) throws IOException {
+		return loadSums(conf, conf.get(HUB_PATH));
+	}
+	
+	/**
+	 * Reads the partial sums the mirrors received in the
+	 *  previous iteration and adds them up per hub
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @return the mass per hub, empty if no hubs are used
+	 * @throws IOException for reading the files
+	 */
+	public static LongDoubleMap loadMirrorMass(Configuration conf) throws IOException {
+		return loadSums(conf, conf.get(MIRROR_INPUT));
+	}
+	
+	private static LongDoubleMap loadSums(Configuration conf, String path) throws IOException {
+		LongDoubleMap sums = new LongDoubleMap();
+		FileSystem fs = FileSystem.get(conf);
+		if (path == null || !fs.exists(new Path(path))) { // No hubs, or no mirror received mass
+			return sums;
+		}
+		for (FileStatus f : fs.listStatus(new Path(path))) {
+			if (!f.getPath().getName().contains("part-")) {
+				continue;
+			}
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(f.getPath())));
+			String line = "";
+			while ((line = br.readLine()) != null) {
+				String[] terms = line.split("\t");
+				if (terms.length == 2) {
+					sums.add(Long.parseLong(terms[0]), Double.parseDouble(terms[1]));
+				}
+			}
+			br.close();
+		}
+		return sums;
+	}
+	
+	/**
+	 * Sets the input format of a job, depending on whether
+	 *  the graph is stored as text or as binary Node objects
+	 * @param job: the Job object to set the input format for
+	 * @param binary: whether the input holds binary Node objects
+	 */
+	public static void setInputFormat(Job job, boolean binary) {
+		if (binary) {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+		else {
+			job.setInputFormatClass(TextInputFormat.class);
 		}
 	}
 	
@@ -241,24 +1203,33 @@ public class Pagerank extends Configured implements Tool {
 	 * Will distribute the lost Pagerank juice over all
 	 *  the nodes and will adjust the Pagerank according
 	 *  to the jump and link factor
+	 * Only needed after the last iteration, since every
+	 *  other iteration is finalized by the next phase 1 Map
 	 * @param conf: the Configuration object for the Map/Reduce job
 	 * @param basePath: String pointing to the base of the output files
 	 * @param iteration: Integer containing the number of iterations the program will run
 	 * 	used to adjust the Job and Path names accordingly
+	 * @param writeText: boolean stating whether the output should be written as text,
+	 * 	or as a SequenceFile of Node objects (binary mode only)
+	 * @return the Counters of the job, holding the change of the last iteration when tracking the residual
 	 * @throws IOException for File adjustment and the starting of the job
 	 * @throws InterruptedException for starting the job
 	 * @throws ClassNotFoundException for starting the job
 	 */
-	public void phase2(Configuration conf, String basePath, int iteration) throws IOException, InterruptedException, ClassNotFoundException {
+	public Counters phase2(Configuration conf, String basePath, int iteration, boolean writeText) throws IOException, InterruptedException, ClassNotFoundException {
 		String in = basePath + "/iter" + (iteration + 1) + "out";
 		String out = basePath + "/iter" + (iteration + 1);
+		conf.setBoolean("writeText", writeText);
+		if (conf.get(HUB_PATH) != null) {
+			conf.set(MIRROR_INPUT, basePath + "/iter" + (iteration + 1) + "mirrors");
+		}
 		
 		Job phase2 = new Job(conf, "Pagerank - Iteration " + (iteration + 1) + " - Phase 2"); // Main settings
 		phase2.setJarByClass(Pagerank.class);
 		FileInputFormat.setInputPaths(phase2, new Path(in)); // Input settings
-		phase2.setInputFormatClass(TextInputFormat.class);
+		setInputFormat(phase2, binaryIntermediates(conf));
 		FileOutputFormat.setOutputPath(phase2, new Path(out)); // Output settings
-		phase2.setOutputFormatClass(TextOutputFormat.class);
+		phase2.setOutputFormatClass(writeText ? TextOutputFormat.class : SequenceFileOutputFormat.class);
 		phase2.setOutputKeyClass(LongWritable.class);
 		phase2.setOutputValueClass(Node.class);
 		phase2.setMapperClass(MassDistributionMap.class); // Class settings
@@ -268,6 +1239,181 @@ public class Pagerank extends Configured implements Tool {
 		if (phase2.waitForCompletion(true)) {
 			System.out.println("Phase 2, Iteration " + (iteration + 1) + " Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
 		}
+		return phase2.getCounters();
+	}
+	
+	/**
+	 * Counts the number of file partitions of the input graph
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @return the number of 'part-' files found in the start path
+	 * @throws IOException for listing the files
+	 */
+	public static int countPartitions(Configuration conf, String startPath) throws IOException {
+		int numPartitions = 0;
+		for (FileStatus s : FileSystem.get(conf).listStatus(new Path(startPath))) {
+			if (s.getPath().getName().contains("part-")) {
+				numPartitions++;
+			}
+		}
+		return numPartitions;
+	}
+	
+	/**
+	 * Reads the split points of a partition plan
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param planPath: String pointing to the output of the plan job
+	 * @return the sorted split points
+	 * @throws IOException for reading the files
+	 */
+	public static long[] loadPartitionPlan(Configuration conf, String planPath) throws IOException {
+		FileSystem fs = FileSystem.get(conf);
+		long[] splitPoints = new long[16];
+		int size = 0;
+		for (FileStatus f : fs.listStatus(new Path(planPath))) {
+			if (!f.getPath().getName().contains("part-")) {
+				continue;
+			}
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(f.getPath())));
+			String line = "";
+			while ((line = br.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (size == splitPoints.length) {
+					splitPoints = Arrays.copyOf(splitPoints, size * 2);
+				}
+				splitPoints[size++] = Long.parseLong(line.trim());
+			}
+			br.close();
+		}
+		return Arrays.copyOf(splitPoints, size);
+	}
+	
+	/**
+	 * Sets the partitioner of a job, being the range partitioner
+	 *  of the partition plan in balanced mode and the modulo
+	 *  partitioner otherwise
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param job: the Job object to set the partitioner for
+	 */
+	private void setPartitioner(Configuration conf, Job job) {
+		if (conf.getBoolean(BALANCED, false)) {
+			job.setPartitionerClass(BalancedPartition.class);
+		}
+		else {
+			job.setPartitionerClass(Partition.class);
+		}
+	}
+	
+	/**
+	 * Builds the partition plan used in balanced mode. The
+	 *  plan is written once and read by every iteration.
+	 * Map: Will read in a sample of the nodes and send on
+	 *  the load of the node and its neighbors
+	 * Reduce: Splits the node ids in ranges of equal load
+	 *  (a single Reduce task, since the sample is small)
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @param planPath: String pointing to the output of the partition plan
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public void planPartitions(Configuration conf, String startPath, String planPath) throws IOException, InterruptedException, ClassNotFoundException {
+		conf.setInt("numPartitions", countPartitions(conf, startPath));
+		
+		Job plan = new Job(conf, "Pagerank - Partition Plan"); // Main settings
+		plan.setJarByClass(Pagerank.class);
+		FileInputFormat.setInputPaths(plan, new Path(startPath)); // Input settings
+		setInputFormat(plan, conf.getBoolean(BINARY, false));
+		FileOutputFormat.setOutputPath(plan, new Path(planPath)); // Output settings
+		plan.setOutputFormatClass(TextOutputFormat.class);
+		plan.setOutputKeyClass(LongWritable.class);
+		plan.setOutputValueClass(NullWritable.class);
+		plan.setMapOutputKeyClass(LongWritable.class);
+		plan.setMapOutputValueClass(LongWritable.class);
+		plan.setMapperClass(SampleMap.class); // Class settings
+		plan.setCombinerClass(SampleCombine.class);
+		plan.setReducerClass(PlanReduce.class);
+		plan.setNumReduceTasks(1);
+		
+		long startTime = System.currentTimeMillis();
+		if (plan.waitForCompletion(true)) {
+			System.out.println("Partition Plan Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+	}
+	
+	/**
+	 * Finds the hubs, being the nodes with an in-degree above
+	 *  the hub threshold. The hubs are found once and read by
+	 *  every iteration.
+	 * Map: Will read in all the nodes and send on a flag for
+	 *  the node and a link for every node it links to
+	 * Reduce: Writes the hubs and their number of mirrors
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @param hubPath: String pointing to the output of the hubs
+	 * @return the number of hubs found
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public long findHubs(Configuration conf, String startPath, String hubPath) throws IOException, InterruptedException, ClassNotFoundException {
+		conf.setInt("numPartitions", countPartitions(conf, startPath));
+		
+		Job hubs = new Job(conf, "Pagerank - Hubs"); // Main settings
+		hubs.setJarByClass(Pagerank.class);
+		FileInputFormat.setInputPaths(hubs, new Path(startPath)); // Input settings
+		setInputFormat(hubs, conf.getBoolean(BINARY, false));
+		FileOutputFormat.setOutputPath(hubs, new Path(hubPath)); // Output settings
+		hubs.setOutputFormatClass(TextOutputFormat.class);
+		hubs.setOutputKeyClass(LongWritable.class);
+		hubs.setOutputValueClass(LongWritable.class);
+		hubs.setMapperClass(HubMap.class); // Class settings
+		hubs.setCombinerClass(SampleCombine.class);
+		hubs.setReducerClass(HubReduce.class);
+		hubs.setNumReduceTasks(countPartitions(conf, startPath));
+		
+		long startTime = System.currentTimeMillis();
+		if (hubs.waitForCompletion(true)) {
+			System.out.println("Hubs Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+		return hubs.getCounters().findCounter(ReduceCounters.HUBS).getValue();
+	}
+	
+	/**
+	 * Writes the structure of the graph once, partitioned with
+	 *  the Partition class and sorted on node id, so every
+	 *  Reduce task of phase 1 can merge join its mass messages
+	 *  with the matching graph partition (schimmy mode)
+	 * Map: Will read in all the nodes and send on their structure
+	 * Reduce: Identity, writing a SequenceFile per partition
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @param structurePath: String pointing to the output of the graph partitions
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public void partitionStructure(Configuration conf, String startPath, String structurePath) throws IOException, InterruptedException, ClassNotFoundException {
+		Job structure = new Job(conf, "Pagerank - Structure Partitioning"); // Main settings
+		structure.setJarByClass(Pagerank.class);
+		FileInputFormat.setInputPaths(structure, new Path(startPath)); // Input settings
+		setInputFormat(structure, conf.getBoolean(BINARY, false));
+		FileOutputFormat.setOutputPath(structure, new Path(structurePath)); // Output settings
+		structure.setOutputFormatClass(SequenceFileOutputFormat.class);
+		structure.setOutputKeyClass(LongWritable.class);
+		structure.setOutputValueClass(Node.class);
+		structure.setMapperClass(StructureMap.class); // Class settings
+		structure.setReducerClass(Reducer.class); // The base Reducer passes every pair on as is
+		setPartitioner(conf, structure);
+		structure.setNumReduceTasks(countPartitions(conf, startPath)); // Must equal the number of Reduce tasks in phase 1
+		
+		long startTime = System.currentTimeMillis();
+		if (structure.waitForCompletion(true)) {
+			System.out.println("Structure Partitioning Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
 	}
 	
 	/**
@@ -282,78 +1428,66 @@ public class Pagerank extends Configured implements Tool {
 	 * @param basePath: String pointing to the base of the output files
 	 * @param iteration: Integer containing the number of iterations the program will run
 	 * 	used to adjust the Job and Path names accordingly
-	 * @return the total mass found in the Reduce found
+	 * @return the Counters of the job, holding amongst others the total mass found in the Reduce
 	 * @throws IOException for File adjustment and the starting of the job
 	 * @throws InterruptedException for starting the job
 	 * @throws ClassNotFoundException for starting the job
 	 */
-	public double phase1(Configuration conf, String startPath, String basePath, int iteration) throws IOException, InterruptedException, ClassNotFoundException {
+	public Counters phase1(Configuration conf, String startPath, String basePath, int iteration) throws IOException, InterruptedException, ClassNotFoundException {
 		String in = "";
 		if (iteration == 0) { // If first iteration, use start path given
 			in = startPath;
 		}
-		else { // else, use previous basePath
-			in = basePath + "/iter" + iteration;
+		else { // else, use the not yet finalized output of the previous iteration
+			in = basePath + "/iter" + iteration + "out";
 		}
 		String out = basePath + "/iter" + (iteration + 1) + "out";
-		String outm = out + "-mass"; //Path 'outm' used for the total mass in the reduce phase
-		conf.set("PageRankMassPath", outm);
-		int numPartitions = 0; // Count the number of file partitions, so the number of reduce tasks can equal the number of map tasks
-		for (FileStatus s : FileSystem.get(conf).listStatus(new Path(startPath))) {
-			if (s.getPath().getName().contains("part-")) {
-				numPartitions++;
-			}
+		conf.setBoolean(FINALIZE, iteration > 0);
+		conf.setInt(ITERATION, iteration);
+		if (conf.get(HUB_PATH) != null) { // The Map adds the mass of the mirrors of the previous iteration, the Reduce writes those of this one
+			conf.set(MIRROR_INPUT, basePath + "/iter" + iteration + "mirrors");
+			conf.set(MIRROR_OUTPUT, basePath + "/iter" + (iteration + 1) + "mirrors");
 		}
+		int numPartitions = countPartitions(conf, startPath); // Count the number of file partitions, so the number of reduce tasks can equal the number of map tasks
 		
 		Job phase1 = new Job(conf, "Pagerank - Iteration " + (iteration + 1) + " - Phase 1"); // Main settings
 		phase1.setJarByClass(Pagerank.class);
 		FileInputFormat.setInputPaths(phase1, new Path(in)); // Input settings
-		phase1.setInputFormatClass(TextInputFormat.class);
+		setInputFormat(phase1, iteration == 0 ? conf.getBoolean(BINARY, false) : binaryIntermediates(conf));
 		FileOutputFormat.setOutputPath(phase1, new Path(out)); // Output settings
-		phase1.setOutputFormatClass(TextOutputFormat.class);
+		phase1.setOutputFormatClass(binaryIntermediates(conf) ? SequenceFileOutputFormat.class : TextOutputFormat.class);
 		phase1.setOutputKeyClass(LongWritable.class);
 		phase1.setOutputValueClass(Node.class);
+		phase1.setMapOutputKeyClass(LongWritable.class); // Shuffle settings
+		phase1.setMapOutputValueClass(PagerankMessage.class);
 		phase1.setMapperClass(Map.class); // Class settings
 		phase1.setReducerClass(Reduce.class);
-		phase1.setPartitionerClass(Partition.class);
+		setPartitioner(conf, phase1);
 		phase1.setNumReduceTasks(numPartitions);
 		
 		long startTime = System.currentTimeMillis();
 		if (phase1.waitForCompletion(true)) {
 			System.out.println("Phase 1, Iteration " + (iteration + 1) + " Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
 		}
-		
-		boolean done = false;
-		int retry = 0;
-		double mass = 0.0; // Retrieve the mass written to the 'outm' Path in the reduce step of phase 1
-		FileSystem fs = FileSystem.get(conf);
-		for (FileStatus f : fs.listStatus(new Path(outm))) {
-			while (!done && retry < 5) {
-				try {
-					FSDataInputStream fin = fs.open(f.getPath());
-					mass += fin.readDouble();
-					fin.close();
-					done = true;
-					retry = 0;
-				} catch (Exception e) {
-					System.out.printf("Unsuccesfully read a file (%s) | will retry...\n", e);
-					done = false;
-					retry++;
-				}
-				
-			}
-			done = false; // Reset done to false for next round
-			if (retry >= 1) {
-				System.out.printf("\nUnsuccesfully read a file for five times | File has been skipped\n\n");
-				retry = 0; // Reset retry to zero for next round
-			}
+		Counters counters = phase1.getCounters();
+		long contributions = counters.findCounter(MapCounters.MASS_CONTRIBUTIONS).getValue();
+		long written = counters.findCounter(MapCounters.MASS_WRITTEN).getValue();
+		System.out.printf("Combine ratio: %d mass contributions in %d messages (%.2f) | Flushes: %d\n", contributions, written, written > 0 ? (double) contributions / written : 0.0, counters.findCounter(MapCounters.FLUSHES).getValue());
+		if (conf.getBoolean(BLOCK, false)) { // The mass over local links never entered the shuffle
+			long localEdges = counters.findCounter(MapCounters.LOCAL_EDGES).getValue();
+			System.out.printf("Local edges: %d Global edges: %d (%.2f local) | Local sweeps: %d\n", localEdges, contributions, localEdges + contributions > 0 ? (double) localEdges / (localEdges + contributions) : 0.0, counters.findCounter(ReduceCounters.LOCAL_SWEEPS).getValue());
+		}
+		if (conf.get(HUB_PATH) != null) {
+			System.out.printf("Mass contributions to mirrors: %d | Mirror messages read: %d\n", counters.findCounter(MapCounters.MIRRORED).getValue(), counters.findCounter(ReduceCounters.MIRRORS_READ).getValue());
 		}
-		return mass;
+		
+		return counters;
 	}
 	
 	/**
-	 * Will iterate over the two phases in order for the
-	 *  specified number of iterations
+	 * Will iterate over phase 1 for the specified number of
+	 *  iterations, each finalizing the previous one, and run
+	 *  phase 2 once to finalize the last iteration
 	 * @param conf: Configuration object used for every Map/Reduce task initiated
 	 * @param startPath: the initial input path as a String
 	 * @param basePath: the base path as a String to put all the output and subsequently input files in
@@ -366,28 +1500,81 @@ public class Pagerank extends Configured implements Tool {
 		missingMass = 0.0, // Will hold the data missed in phase 1 and given to phase 2 to give an equal share to every node
 		oldMass = 0.0; // Stores the previously found mass send around to check convergence
 		
-		System.out.printf("Startpath: %s Basepath: %s Iterations: %d\n", startPath, basePath, iterations);
+		boolean binary = conf.getBoolean(BINARY, false), delta = conf.getBoolean(DELTA, false), converged = false;
+		boolean track = tracksHistory(conf);
+		double residualThreshold = conf.getFloat(RESIDUAL_THRESHOLD, 0.0f), residual = 0.0;
+		StringBuilder residuals = new StringBuilder(); // One line per iteration, printed at the end
+		int lastIteration = -1;
+		System.out.printf("Startpath: %s Basepath: %s Iterations: %d Binary: %b Schimmy: %b Delta: %b Block: %b\n", startPath, basePath, iterations, binary, conf.getBoolean(SCHIMMY, false), delta, conf.getBoolean(BLOCK, false));
 		long startTime = System.currentTimeMillis();
-		for (int i = 0; i < iterations; i++) {
-			if (oldMass != 0) {
-				System.out.printf("Previous send mass: %f and current send mass: %f\n", oldMass, mass);
-				if (Math.abs(oldMass - mass) < CONVERGENCE_POINT) { // If this holds, convergence is being reached, hence break
-					System.out.printf("Convergence point has been reached in iterations %d\n\toldMass: %f - mass: %f = diff: %f\n", i - 1, oldMass, mass, oldMass - mass);
-					break;
-				}
-			}
+		if (conf.getBoolean(BALANCED, false) && conf.get(PARTITION_PLAN) == null) { // Sample the graph once, unless an existing plan is given
+			conf.set(PARTITION_PLAN, basePath + "/partitionPlan");
+			planPartitions(conf, startPath, conf.get(PARTITION_PLAN));
+		}
+		if (conf.getBoolean(SCHIMMY, false)) { // Write the graph partitions once; phase 1 will only shuffle mass messages
+			conf.set(STRUCTURE_PATH, basePath + "/structure");
+			partitionStructure(conf, startPath, conf.get(STRUCTURE_PATH));
+		}
+		if (conf.getInt(HUB_THRESHOLD, 0) > 0) { // Find the hubs once; phase 1 will send their mass to mirrors on other Reduce tasks
+			conf.set(HUB_PATH, basePath + "/hubs");
+			System.out.printf("Hubs with an in-degree above %d: %d\n", conf.getInt(HUB_THRESHOLD, 0), findHubs(conf, startPath, conf.get(HUB_PATH)));
+		}
+		for (int i = 0; i < iterations && !converged; i++) {
 			oldMass = mass;
 			mass = 0.0f;
 			missingMass = conf.getInt("numNodes", 0);
 			
 			System.out.printf("Phase 1, Iteration %d will start\nNumber of Nodes: %d Total Mass Send: %f Missing Mass: %f\n\n;", i + 1, conf.getInt("numNodes", 0), mass, missingMass);
-			mass = phase1(conf, startPath, basePath, i);
+			Counters counters = phase1(conf, startPath, basePath, i);
+			mass = counters.findCounter(ReduceCounters.SCALED_MASS).getValue() / MASS_SCALE; // The mass found in the reduce step of phase 1
+			lastIteration = i;
+			
+			if (delta) { // Converged once no node has a residual above the epsilon left
+				long activeVertices = counters.findCounter(MapCounters.ACTIVE_VERTICES).getValue();
+				double sentMass = counters.findCounter(MapCounters.SCALED_SENT).getValue() / MASS_SCALE;
+				conf.set(DELTA_CORRECTION, Double.toString(-(1 - ALPHA) * sentMass / conf.getInt("numNodes", 0))); // Applied by the Map of the next iteration, or by phase 2 after the last one
+				System.out.printf("\n\nPhase 1, Iteration %d complete\nActive Nodes: %d Active Edges: %d Residual Send: %f\n\n", i + 1, activeVertices, counters.findCounter(MapCounters.ACTIVE_EDGES).getValue(), sentMass);
+				if (activeVertices == 0) {
+					System.out.printf("Convergence point has been reached in iterations %d\n\tNo node has a residual above %f\n", i, conf.getFloat(EPSILON, 0.0001f));
+					converged = true;
+				}
+				continue;
+			}
+			
+			if (track && i > 0) { // The change was measured while finalizing the previous iteration
+				residual = counters.findCounter(MapCounters.SCALED_CHANGE).getValue() / MASS_SCALE;
+				double maxChange = maxChange(conf, basePath + "/iter" + (i + 1) + "out");
+				residuals.append(String.format("%d\t%f\t%f\n", i, residual, maxChange));
+				System.out.printf("Residual of iteration %d: L1 %f Max %f | Extrapolated nodes: %d\n", i, residual, maxChange, counters.findCounter(MapCounters.EXTRAPOLATED).getValue());
+			}
 			
+			if (residualThreshold > 0) { // Check convergence on the change of the ranks themselves; the current iteration is the last one
+				if (i > 0 && residual < residualThreshold) {
+					System.out.printf("Convergence point has been reached in iterations %d\n\tResidual: %f below threshold: %f\n", i, residual, residualThreshold);
+					converged = true;
+				}
+			}
+			else if (oldMass != 0) { // Check convergence now, so no further iteration is started
+				System.out.printf("Previous send mass: %f and current send mass: %f\n", oldMass, mass);
+				if (Math.abs(oldMass - mass) < CONVERGENCE_POINT) { // If this holds, convergence is being reached, hence this is the last iteration
+					System.out.printf("Convergence point has been reached in iterations %d\n\toldMass: %f - mass: %f = diff: %f\n", i, oldMass, mass, oldMass - mass);
+					converged = true;
+				}
+			}
 			missingMass -= mass; // The missing mass will equal the total mass (thus, number of nodes) minus the mass found in phase 1
-			System.out.printf("\n\nPhase 1, Iteration %d complete\nNumber of Nodes: %d Total Mass Send: %f Missing Mass: %f\nWill start phase 2, Iteration %d\n\n", i + 1, conf.getInt("numNodes", 0), mass, missingMass, i + 1);
-			conf.setFloat("missingMass", (float) missingMass);
-			phase2(conf, basePath, i);
-			System.out.printf("\n\nPhase 2, Iteration %d complete\n", i + 1);
+			System.out.printf("\n\nPhase 1, Iteration %d complete\nNumber of Nodes: %d Total Mass Send: %f Missing Mass: %f\n\n", i + 1, conf.getInt("numNodes", 0), mass, missingMass);
+			conf.setFloat("missingMass", (float) missingMass); // Applied by the Map of the next iteration, or by phase 2 after the last one
+		}
+		if (lastIteration >= 0) { // Only the last iteration needs a separate pass to be finalized
+			System.out.printf("Will start phase 2, Iteration %d\n\n", lastIteration + 1);
+			Counters counters = phase2(conf, basePath, lastIteration, !binary || conf.getBoolean(TEXT_OUTPUT, false));
+			System.out.printf("\n\nPhase 2, Iteration %d complete\n", lastIteration + 1);
+			if (track && lastIteration > 0) { // The first iteration has no previous Pagerank to compare with
+				residuals.append(String.format("%d\t%f\t%f\n", lastIteration + 1, counters.findCounter(MapCounters.SCALED_CHANGE).getValue() / MASS_SCALE, maxChange(conf, basePath + "/iter" + (lastIteration + 1))));
+			}
+		}
+		if (residuals.length() > 0) {
+			System.out.printf("\nIteration\tL1 residual\tMax residual\n%s", residuals);
 		}
 		System.out.println("\n\nJob finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
 	}
@@ -398,6 +1585,17 @@ public class Pagerank extends Configured implements Tool {
 	 */
 	private int printUsage() {
 		System.out.println("usage:\t <input path> <output path> <number of nodes> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + BINARY + "=true (input converted by GraphConverter)");
+		System.out.println("\t -D " + TEXT_OUTPUT + "=true (final iteration as text in binary mode)");
+		System.out.println("\t -D " + SCHIMMY + "=true (merge join with graph partitions)");
+		System.out.println("\t -D " + COMBINE_MEMORY + "=<MB> (combiner memory, default 64)");
+		System.out.println("\t -D " + BALANCED + "=true (balance the incoming messages per Reduce task, sampling -D " + SAMPLE_RATE + "=<fraction> of the nodes, default 0.01, or reusing -D " + PARTITION_PLAN + "=<path>)");
+		System.out.println("\t -D " + DELTA + "=true (only send the change of nodes with a residual above -D " + EPSILON + "=<value>, default 0.0001)");
+		System.out.println("\t -D " + RESIDUAL_THRESHOLD + "=<value> (stop once the summed change in Pagerank of an iteration drops below the value, instead of comparing the total mass; not combined with " + DELTA + " or " + BLOCK + ")");
+		System.out.println("\t -D " + EXTRAPOLATE + "=<number> (Aitken extrapolation every number of iterations, at least " + HISTORY_DEPTH + "; not combined with " + DELTA + " or " + BLOCK + ")");
+		System.out.println("\t -D " + HUB_THRESHOLD + "=<number> (split the mass of nodes with a higher in-degree over mirrors on other Reduce tasks; not combined with " + DELTA + " or " + BLOCK + ")");
+		System.out.println("\t -D " + BLOCK + "=true (sweep over the links within a partition in the Reduce task, at most -D " + LOCAL_SWEEPS + "=<number> times, default 5; not combined with " + DELTA + ")");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
@@ -429,6 +1627,24 @@ public class Pagerank extends Configured implements Tool {
 			System.err.println("Error: expected Integers instead of " + args[2] + " (arg 2) and " + args[3] + " (arg 3)");
 			return printUsage();
 		}
+		if (conf.getBoolean(BLOCK, false) && conf.getBoolean(DELTA, false)) {
+			System.err.println("Error: " + BLOCK + " and " + DELTA + " mode can not be combined");
+			return printUsage();
+		}
+		if (conf.getInt(EXTRAPOLATE, 0) > 0 && (conf.getInt(EXTRAPOLATE, 0) < HISTORY_DEPTH || conf.getBoolean(BLOCK, false) || conf.getBoolean(DELTA, false))) {
+			System.err.println("Error: " + EXTRAPOLATE + " should be at least " + HISTORY_DEPTH + " and can not be combined with " + BLOCK + " or " + DELTA + " mode");
+			return printUsage();
+		}
+		
+		if (conf.getFloat(RESIDUAL_THRESHOLD, 0.0f) > 0 && (conf.getBoolean(BLOCK, false) || conf.getBoolean(DELTA, false))) {
+			System.err.println("Error: " + RESIDUAL_THRESHOLD + " can not be combined with " + BLOCK + " or " + DELTA + " mode");
+			return printUsage();
+		}
+		
+		if (conf.getInt(HUB_THRESHOLD, 0) > 0 && (conf.getBoolean(BLOCK, false) || conf.getBoolean(DELTA, false))) {
+			System.err.println("Error: " + HUB_THRESHOLD + " can not be combined with " + BLOCK + " or " + DELTA + " mode");
+			return printUsage();
+		}
 		
 		// Create and start iterations
 		iterate(conf, startPath, basePath, iterations);
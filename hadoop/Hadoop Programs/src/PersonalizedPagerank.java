@@ -0,0 +1,579 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.AdjacencyWritable;
+import types.LongDoubleMap;
+import types.Node;
+import types.PagerankMessage;
+
+/**
+ * Hadoop program to run several personalized Pageranks at
+ *  once. Every line of the seed file holds a set of node ids
+ *  to which the random jump, and the missing mass, of one
+ *  Pagerank vector go. Every node carries a vector with a
+ *  Pagerank per seed set, hence parsing the graph and
+ *  shuffling its structure is done once for all of them.
+ * The Pagerank of every vector sums up to one.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class PersonalizedPagerank extends Configured implements Tool {
+	
+	public static final String SEEDS = "seeds"; // Configuration key holding the location of the seed file
+	public static final String VECTORS = "vectors"; // Configuration key holding the number of seed sets, thus the width of the vectors
+	public static final String MISSING_MASSES = "missingMasses"; // Configuration key holding the comma separated missing mass per vector
+	public static final String MASS_GROUP = "PersonalizedMass"; // Counter group holding the scaled mass found per vector
+	
+	/**
+	 * The seed sets, stored as (node id, vector) pairs
+	 *  sorted on node id, so the vectors a node jumps
+	 *  to can be found with a binary search
+	 */
+	public static class SeedSets {
+		
+		private long[] ids;
+		private int[] vectors;
+		private int[] sizes; // Number of nodes per seed set
+		private int size;
+		
+		/**
+		 * Reads a seed file, of which every non empty line holds
+		 *  the whitespace separated node ids of one seed set; an
+		 *  id listed twice in a set counts once
+		 * @param fs: the FileSystem holding the file
+		 * @param path: Path pointing to the seed file
+		 * @throws IOException for reading the file, too many seed sets or an id which does not fit in 47 bits
+		 */
+		public SeedSets(FileSystem fs, Path path) throws IOException {
+			long[] pairs = new long[16]; // Node id and vector packed in a long, hence sorting sorts on node id first
+			int numVectors = 0;
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(path)));
+			String line = "";
+			while ((line = br.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (numVectors == 1 << 16) {
+					throw new IOException("More than " + (1 << 16) + " seed sets found in " + path);
+				}
+				for (String term : line.trim().split("\\s+")) {
+					long nodeId = Long.parseLong(term);
+					if (nodeId < 0 || nodeId >= 1L << 47) {
+						throw new IOException("Node id " + nodeId + " in " + path + " does not fit in 47 bits");
+					}
+					if (size == pairs.length) {
+						pairs = Arrays.copyOf(pairs, size * 2);
+					}
+					pairs[size++] = (nodeId << 16) | numVectors;
+				}
+				numVectors++;
+			}
+			br.close();
+			
+			Arrays.sort(pairs, 0, size);
+			int unique = 0;
+			for (int i = 0; i < size; i++) { // Drop an id listed twice in a seed set, which would otherwise be counted twice in its size
+				if (i == 0 || pairs[i] != pairs[unique - 1]) {
+					pairs[unique++] = pairs[i];
+				}
+			}
+			size = unique;
+			ids = new long[size];
+			vectors = new int[size];
+			sizes = new int[numVectors];
+			for (int i = 0; i < size; i++) {
+				ids[i] = pairs[i] >>> 16;
+				vectors[i] = (int) (pairs[i] & 0xFFFF);
+				sizes[vectors[i]]++;
+			}
+		}
+		
+		public int numVectors() {
+			return sizes.length;
+		}
+		
+		/**
+		 * Fills in the random jump distribution of a node
+		 * @param nodeId: the id of the node
+		 * @param teleport: array to fill with, per vector, the share of the jump the node receives
+		 */
+		public void teleport(long nodeId, double[] teleport) {
+			Arrays.fill(teleport, 0, sizes.length, 0.0);
+			int i = Arrays.binarySearch(ids, 0, size, nodeId);
+			if (i < 0) {
+				return;
+			}
+			while (i > 0 && ids[i - 1] == nodeId) { // Go back to the first pair of the node
+				i--;
+			}
+			for (; i < size && ids[i] == nodeId; i++) {
+				teleport[vectors[i]] = 1.0 / sizes[vectors[i]];
+			}
+		}
+	}
+	
+	/**
+	 * Loads the seed sets from the Distributed Cache, or from
+	 *  the configured path when the cache is not available
+	 * @param conf: the Configuration object of the task
+	 * @return the SeedSets of the job
+	 * @throws IOException for reading the file
+	 */
+	public static SeedSets loadSeedSets(Configuration conf) throws IOException {
+		Path[] paths = DistributedCache.getLocalCacheFiles(conf);
+		if (paths != null && paths.length > 0) {
+			return new SeedSets(FileSystem.getLocal(conf), paths[0]);
+		}
+		return new SeedSets(FileSystem.get(conf), new Path(conf.get(SEEDS)));
+	}
+	
+	/**
+	 * @param conf: the Configuration object of the task
+	 * @param width: the number of vectors
+	 * @return the missing mass per vector of the previous iteration
+	 */
+	public static double[] missingMasses(Configuration conf, int width) {
+		double[] missingMasses = new double[width];
+		String masses = conf.get(MISSING_MASSES);
+		if (masses != null) {
+			String[] terms = masses.split(",");
+			for (int k = 0; k < width; k++) {
+				missingMasses[k] = Double.parseDouble(terms[k]);
+			}
+		}
+		return missingMasses;
+	}
+	
+	/**
+	 * Finalizes the Pagerank vector of a node by adding the
+	 *  random jump and the missing mass, both of which only go
+	 *  to the seed set of a vector
+	 * @param ranks: array holding the mass received per vector, replaced by the final Pageranks
+	 * @param teleport: the share per vector of the jump the node receives
+	 * @param missingMasses: the missing mass per vector
+	 */
+	public static void finalizePageranks(double[] ranks, double[] teleport, double[] missingMasses) {
+		for (int k = 0; k < ranks.length; k++) {
+			ranks[k] = teleport[k] * (Pagerank.ALPHA + (1 - Pagerank.ALPHA) * missingMasses[k]) + (1 - Pagerank.ALPHA) * ranks[k];
+		}
+	}
+	
+	/**
+	 * Checks that a node read in carries a Pagerank vector of
+	 *  the expected width, a node with a scalar Pagerank would
+	 *  otherwise silently lose its mass
+	 * @param node: the Node read in
+	 * @param width: the number of vectors
+	 * @throws IOException for a node holding a vector of another width
+	 */
+	public static void checkWidth(Node node, int width) throws IOException {
+		if (node.getPageranks().length != width) {
+			throw new IOException("Node " + node.getNodeId() + " holds " + node.getPageranks().length + " Pageranks instead of " + width);
+		}
+	}
+	
+	public static class Map extends Mapper<LongWritable, Writable, LongWritable, PagerankMessage> {
+		
+		private int width;
+		private boolean finalize;
+		private SeedSets seedSets;
+		private double[] missingMasses, ranks, teleport, partialMasses;
+		private AdjacencyWritable.Cursor cursor;
+		private LongDoubleMap massMessagesMap; // Sums up a vector of masses per neighbor
+		private int maxMassMessages;
+		private LongWritable messageKey;
+		private PagerankMessage message;
+		private double[] row; // Reused to copy a vector out of the combiner
+		
+		@Override
+		public void setup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			width = conf.getInt(VECTORS, 1);
+			finalize = conf.getBoolean(Pagerank.FINALIZE, false);
+			seedSets = loadSeedSets(conf);
+			missingMasses = missingMasses(conf, width);
+			ranks = new double[width];
+			teleport = new double[width];
+			partialMasses = new double[width];
+			row = new double[width];
+			cursor = new AdjacencyWritable.Cursor();
+			maxMassMessages = LongDoubleMap.entriesForMemory(conf.getLong(Pagerank.COMBINE_MEMORY, 64) * 1024 * 1024, width);
+			massMessagesMap = new LongDoubleMap(Math.min(maxMassMessages, 1 << 16), width);
+			messageKey = new LongWritable();
+			message = new PagerankMessage();
+		}
+		
+		@Override
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				emitNode((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				emitNode(node, context);
+			}
+		}
+		
+		private void emitNode(Node node, Context context) throws IOException, InterruptedException {
+			seedSets.teleport(node.getNodeId().get(), teleport);
+			if (finalize) { // The previous iteration wrote the received mass only
+				checkWidth(node, width);
+				System.arraycopy(node.getPageranks(), 0, ranks, 0, width);
+				finalizePageranks(ranks, teleport, missingMasses);
+			}
+			else if (node.getPageranks().length == width) { // Continue from earlier personalized Pageranks
+				System.arraycopy(node.getPageranks(), 0, ranks, 0, width);
+			}
+			else { // Start every vector from its random jump distribution
+				System.arraycopy(teleport, 0, ranks, 0, width);
+			}
+			
+			message.setStructure(node.hasStructure() ? node.getAdjacencyList() : null);
+			context.write(node.getNodeId(), message);
+			context.getCounter(Pagerank.MapCounters.TOTAL_WRITES).increment(1);
+			
+			if (node.hasStructure()) {
+				context.getCounter(Pagerank.MapCounters.STRUCTURES).increment(1);
+				int degree = node.getAdjacencyList().size();
+				for (int k = 0; k < width; k++) {
+					partialMasses[k] = ranks[k] / degree;
+				}
+				cursor.reset(node.getAdjacencyList());
+				while (cursor.hasNext()) {
+					if (massMessagesMap.size() >= maxMassMessages) {
+						flush(context);
+					}
+					massMessagesMap.add(cursor.next(), partialMasses);
+				}
+				context.getCounter(Pagerank.MapCounters.MASS_CONTRIBUTIONS).increment(degree);
+			}
+			else {
+				context.getCounter(Pagerank.MapCounters.DANGLING_NODES).increment(1);
+			}
+			context.getCounter(Pagerank.MapCounters.NODES).increment(1);
+		}
+		
+		private void flush(Context context) throws IOException, InterruptedException {
+			context.getCounter(Pagerank.MapCounters.MASS_WRITTEN).increment(massMessagesMap.size());
+			context.getCounter(Pagerank.MapCounters.TOTAL_WRITES).increment(massMessagesMap.size());
+			context.getCounter(Pagerank.MapCounters.FLUSHES).increment(1);
+			for (int slot = massMessagesMap.nextSlot(-1); slot >= 0; slot = massMessagesMap.nextSlot(slot)) {
+				for (int k = 0; k < width; k++) {
+					row[k] = massMessagesMap.valueAt(slot, k);
+				}
+				messageKey.set(massMessagesMap.keyAt(slot));
+				message.setMasses(row, width);
+				context.write(messageKey, message);
+			}
+			massMessagesMap.clear();
+		}
+		
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+		}
+	}
+	
+	public static class Reduce extends Reducer<LongWritable, PagerankMessage, LongWritable, Writable> {
+		
+		private int width;
+		private boolean binary;
+		private double[] totalMasses, receivedMasses;
+		private AdjacencyWritable links;
+		
+		@Override
+		public void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			width = conf.getInt(VECTORS, 1);
+			binary = conf.getBoolean(Pagerank.BINARY, false);
+			totalMasses = new double[width];
+			receivedMasses = new double[width];
+			links = new AdjacencyWritable();
+		}
+		
+		@Override
+		public void reduce(LongWritable key, Iterable<PagerankMessage> values, Context context) throws IOException, InterruptedException {
+			Arrays.fill(receivedMasses, 0.0);
+			links.clear();
+			for (PagerankMessage message : values) {
+				if (message.isMassVector()) {
+					double[] masses = message.getMasses();
+					for (int k = 0; k < width; k++) {
+						receivedMasses[k] += masses[k];
+					}
+					context.getCounter(Pagerank.ReduceCounters.MASS_READ).increment(1);
+				}
+				else if (!message.getAdjacencyList().isEmpty()) { // readFields() reuses the list of the value, hence copy it
+					links.set(message.getAdjacencyList());
+					context.getCounter(Pagerank.ReduceCounters.STRUCTURES).increment(1);
+				}
+				else {
+					context.getCounter(Pagerank.ReduceCounters.DANGLING_NODES).increment(1);
+				}
+				context.getCounter(Pagerank.ReduceCounters.TOTAL_READS).increment(1);
+			}
+			for (int k = 0; k < width; k++) {
+				totalMasses[k] += receivedMasses[k];
+			}
+			
+			Node node = new Node();
+			node.setNodeId(key.get());
+			node.setPageranks(receivedMasses); // Written out right away, hence the array can be reused
+			node.setAdjacencyList(links);
+			node.setAsCompleteNode();
+			if (binary) {
+				context.write(node.getNodeId(), node);
+			}
+			else {
+				context.write(node.getNodeId(), new Text(node.structure()));
+			}
+			context.getCounter(Pagerank.ReduceCounters.NODES).increment(1);
+		}
+		
+		@Override
+		public void cleanup(Context context) {
+			for (int k = 0; k < width; k++) { // A counter per vector, as every vector misses its own mass
+				context.getCounter(MASS_GROUP, "vector" + k).increment(Math.round(totalMasses[k] * Pagerank.MASS_SCALE));
+			}
+		}
+	}
+	
+	public static class MassDistributionMap extends Mapper<LongWritable, Writable, LongWritable, Writable> {
+		
+		private int width;
+		private boolean textOutput;
+		private SeedSets seedSets;
+		private double[] missingMasses, teleport;
+		
+		@Override
+		public void setup(Context context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			width = conf.getInt(VECTORS, 1);
+			textOutput = conf.getBoolean("writeText", true);
+			seedSets = loadSeedSets(conf);
+			missingMasses = missingMasses(conf, width);
+			teleport = new double[width];
+		}
+		
+		@Override
+		public void map(LongWritable key, Writable value, Context context) throws IOException, InterruptedException {
+			if (value instanceof Node) { // Binary input, hence no parsing needed
+				distributeMass((Node) value, context);
+				return;
+			}
+			
+			String[] lines = value.toString().split("\n");
+			for (String line : lines) {
+				Node node = new Node();
+				node.parse(line);
+				distributeMass(node, context);
+			}
+		}
+		
+		private void distributeMass(Node node, Context context) throws IOException, InterruptedException {
+			checkWidth(node, width);
+			seedSets.teleport(node.getNodeId().get(), teleport);
+			finalizePageranks(node.getPageranks(), teleport, missingMasses);
+			if (textOutput) {
+				context.write(node.getNodeId(), new Text(node.structure()));
+			}
+			else {
+				context.write(node.getNodeId(), node);
+			}
+			context.getCounter(Pagerank.MapCounters.TOTAL_WRITES).increment(1);
+			context.getCounter(Pagerank.MapCounters.NODES).increment(1);
+		}
+	}
+	
+	/**
+	 * Runs the first step of the personalized Pagerank
+	 * Map: Will finalize the vectors of the previous iteration
+	 *  and send their partitions to the neighbors, as one
+	 *  vector of masses per neighbor
+	 * Reduce: Sums up the vectors received per node
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param startPath: String holding the initial input path
+	 * @param basePath: String pointing to the base of the output files
+	 * @param iteration: Integer containing the current iteration
+	 * @return the Counters of the job, holding the mass found per vector
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public Counters phase1(Configuration conf, String startPath, String basePath, int iteration) throws IOException, InterruptedException, ClassNotFoundException {
+		String in = iteration == 0 ? startPath : basePath + "/iter" + iteration + "out";
+		String out = basePath + "/iter" + (iteration + 1) + "out";
+		boolean binary = conf.getBoolean(Pagerank.BINARY, false);
+		conf.setBoolean(Pagerank.FINALIZE, iteration > 0);
+		
+		Job phase1 = new Job(conf, "Personalized Pagerank - Iteration " + (iteration + 1) + " - Phase 1"); // Main settings
+		phase1.setJarByClass(PersonalizedPagerank.class);
+		FileInputFormat.setInputPaths(phase1, new Path(in)); // Input settings
+		Pagerank.setInputFormat(phase1, binary);
+		FileOutputFormat.setOutputPath(phase1, new Path(out)); // Output settings
+		phase1.setOutputFormatClass(binary ? SequenceFileOutputFormat.class : TextOutputFormat.class);
+		phase1.setOutputKeyClass(LongWritable.class);
+		phase1.setOutputValueClass(Node.class);
+		phase1.setMapOutputKeyClass(LongWritable.class); // Shuffle settings
+		phase1.setMapOutputValueClass(PagerankMessage.class);
+		phase1.setMapperClass(Map.class); // Class settings
+		phase1.setReducerClass(Reduce.class);
+		phase1.setPartitionerClass(Pagerank.Partition.class);
+		phase1.setNumReduceTasks(Pagerank.countPartitions(conf, startPath));
+		
+		long startTime = System.currentTimeMillis();
+		if (phase1.waitForCompletion(true)) {
+			System.out.println("Phase 1, Iteration " + (iteration + 1) + " Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+		return phase1.getCounters();
+	}
+	
+	/**
+	 * Runs the second step of the personalized Pagerank, only
+	 *  needed to finalize the last iteration
+	 * @param conf: the Configuration object for the Map/Reduce job
+	 * @param basePath: String pointing to the base of the output files
+	 * @param iteration: Integer containing the last iteration
+	 * @param writeText: boolean stating whether the output should be written as text
+	 * @throws IOException for File adjustment and the starting of the job
+	 * @throws InterruptedException for starting the job
+	 * @throws ClassNotFoundException for starting the job
+	 */
+	public void phase2(Configuration conf, String basePath, int iteration, boolean writeText) throws IOException, InterruptedException, ClassNotFoundException {
+		conf.setBoolean("writeText", writeText);
+		
+		Job phase2 = new Job(conf, "Personalized Pagerank - Iteration " + (iteration + 1) + " - Phase 2"); // Main settings
+		phase2.setJarByClass(PersonalizedPagerank.class);
+		FileInputFormat.setInputPaths(phase2, new Path(basePath + "/iter" + (iteration + 1) + "out")); // Input settings
+		Pagerank.setInputFormat(phase2, conf.getBoolean(Pagerank.BINARY, false));
+		FileOutputFormat.setOutputPath(phase2, new Path(basePath + "/iter" + (iteration + 1))); // Output settings
+		phase2.setOutputFormatClass(writeText ? TextOutputFormat.class : SequenceFileOutputFormat.class);
+		phase2.setOutputKeyClass(LongWritable.class);
+		phase2.setOutputValueClass(Node.class);
+		phase2.setMapperClass(MassDistributionMap.class); // Class settings
+		phase2.setNumReduceTasks(0);
+		
+		long startTime = System.currentTimeMillis();
+		if (phase2.waitForCompletion(true)) {
+			System.out.println("Phase 2, Iteration " + (iteration + 1) + " Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		}
+	}
+	
+	/**
+	 * Will iterate over phase 1 until every vector converged,
+	 *  and run phase 2 once to finalize the last iteration
+	 * @param conf: Configuration object used for every Map/Reduce task initiated
+	 * @param startPath: the initial input path as a String
+	 * @param basePath: the base path as a String to put all the output and subsequently input files in
+	 * @param iterations: the maximal number of iterations to run
+	 * @throws Exception from the phase1() and phase2() methods
+	 */
+	private void iterate(Configuration conf, String startPath, String basePath, int iterations) throws Exception {
+		int width = conf.getInt(VECTORS, 1), lastIteration = -1;
+		double[] masses = new double[width], oldMasses = new double[width];
+		boolean converged = false;
+		long startTime = System.currentTimeMillis();
+		for (int i = 0; i < iterations && !converged; i++) {
+			Counters counters = phase1(conf, startPath, basePath, i);
+			lastIteration = i;
+			
+			StringBuilder missingMasses = new StringBuilder();
+			converged = i > 0;
+			System.out.printf("\n\nPhase 1, Iteration %d complete\nVector\tMass Send\tMissing Mass\n", i + 1);
+			for (int k = 0; k < width; k++) {
+				oldMasses[k] = masses[k];
+				masses[k] = counters.findCounter(MASS_GROUP, "vector" + k).getValue() / Pagerank.MASS_SCALE;
+				converged &= Math.abs(oldMasses[k] - masses[k]) < Pagerank.CONVERGENCE_POINT;
+				missingMasses.append(k > 0 ? "," : "").append(1.0 - masses[k]); // Every vector holds a total mass of one
+				System.out.printf("%d\t%f\t%f\n", k, masses[k], 1.0 - masses[k]);
+			}
+			conf.set(MISSING_MASSES, missingMasses.toString()); // Applied by the Map of the next iteration, or by phase 2 after the last one
+			if (converged) {
+				System.out.printf("Convergence point has been reached in iterations %d for all %d vectors\n", i, width);
+			}
+		}
+		if (lastIteration >= 0) {
+			phase2(conf, basePath, lastIteration, !conf.getBoolean(Pagerank.BINARY, false) || conf.getBoolean(Pagerank.TEXT_OUTPUT, false));
+		}
+		System.out.println("\n\nJob finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+	}
+	
+	/**
+	 * Prints out the usages of this program in case the user
+	 *  gave incorrect input
+	 */
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <seed file> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + Pagerank.BINARY + "=true (input converted by GraphConverter)");
+		System.out.println("\t -D " + Pagerank.TEXT_OUTPUT + "=true (final iteration as text in binary mode)");
+		System.out.println("\t -D " + Pagerank.COMBINE_MEMORY + "=<MB> (combiner memory, default 64)");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	@Override
+	public int run(String[] args) throws Exception {
+		int iterations = 0;
+		Configuration conf = new Configuration(getConf());
+		
+		// Set arguments
+		if (args.length < 4) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			iterations = Integer.parseInt(args[3]);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected an Integer instead of " + args[3] + " (arg 3)");
+			return printUsage();
+		}
+		
+		Path seedPath = new Path(args[2]); // Distributed Cache settings
+		FileSystem fs = FileSystem.get(seedPath.toUri(), conf);
+		seedPath = fs.makeQualified(seedPath);
+		int width = new SeedSets(fs, seedPath).numVectors();
+		if (width == 0) {
+			System.err.println("Error: no seed sets found in " + args[2]);
+			return printUsage();
+		}
+		conf.set(SEEDS, seedPath.toString());
+		conf.setInt(VECTORS, width);
+		DistributedCache.addCacheFile(seedPath.toUri(), conf);
+		System.out.printf("Startpath: %s Basepath: %s Iterations: %d Vectors: %d\n", args[0], args[1], iterations, width);
+		
+		// Create and start iterations
+		iterate(conf, args[0], args[1], iterations);
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new PersonalizedPagerank(), args);
+		System.exit(result);
+	}
+}
@@ -0,0 +1,294 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.ToolRunner;
+
+import types.AdjacencyWritable;
+import types.Node;
+
+/**
+ * Program to run the Pagerank algorithm of the Hadoop
+ *  Pagerank job on a single machine for graphs which do
+ *  not fit in memory. The links are written once to shard
+ *  files on local disk, every shard holding the links to
+ *  one interval of node ids, as done by the parallel
+ *  sliding windows of GraphChi. Every iteration maps and
+ *  streams each shard once, in parallel, while only the
+ *  vectors indexed by node id are kept in memory. Node
+ *  ids, as written by the GraphParser, should fit in an int.
+ *  Builds on the LocalPagerank, with a range per shard.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class ShardedPagerank extends LocalPagerank {
+	
+	public static final String SHARDS = "shards"; // Configuration key holding the minimal number of shards
+	public static final String SHARD_DIR = "shardDir"; // Configuration key holding the local directory in which every run creates a directory for its shard files
+	public static final long MAX_EDGES_PER_SHARD = 1L << 26; // Keeps a shard file well below the 2 GB a single mapping can hold
+	public static final int EDGE_BYTES = 8; // A link is stored as an int source and an int destination
+	
+	private int numIds; // The highest node id plus one
+	private int[] inDegrees;
+	private double[] contributions; // Contributions hold the mass send along each link of a node
+	private BitSet present, inInput; // Nodes in the graph, and nodes with a line of their own in the input
+	private long numLinks;
+	private File shardDir; // Created per run, so concurrent runs do not overwrite each other's shards
+	private File[] shardFiles; // Shard k holds the links to the node ids of range k
+	private MappedByteBuffer[] shardBuffers;
+	
+	private int toIndex(long nodeId) throws IOException {
+		if (nodeId < 0 || nodeId >= Integer.MAX_VALUE - 8) {
+			throw new IOException("Node id " + nodeId + " does not fit in an int");
+		}
+		int index = (int) nodeId;
+		if (index >= outDegrees.length) { // Grow the vectors, since the highest id is not known up front
+			int capacity = Math.max(index + 1, (int) Math.min(outDegrees.length * 2L, Integer.MAX_VALUE - 8));
+			outDegrees = Arrays.copyOf(outDegrees, capacity);
+			inDegrees = Arrays.copyOf(inDegrees, capacity);
+			pageranks = Arrays.copyOf(pageranks, capacity);
+		}
+		return index;
+	}
+	
+	/**
+	 * First pass: finds the nodes, their Pagerank and the
+	 *  number of incoming and outgoing links of every node
+	 */
+	private void countLinks(Configuration conf, String inputPath) throws IOException {
+		outDegrees = new int[1024];
+		inDegrees = new int[1024];
+		pageranks = new double[1024];
+		present = new BitSet();
+		inInput = new BitSet();
+		numLinks = 0;
+		streamGraph(conf, inputPath, new NodeHandler() {
+			private AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor();
+			
+			@Override
+			public void handle(Node node) throws IOException {
+				int u = toIndex(node.getNodeId().get());
+				present.set(u);
+				inInput.set(u);
+				pageranks[u] = node.getPagerank().get();
+				if (node.hasStructure()) {
+					outDegrees[u] = node.getAdjacencyList().size();
+					numLinks += outDegrees[u];
+					cursor.reset(node.getAdjacencyList());
+					while (cursor.hasNext()) {
+						int v = toIndex(cursor.next());
+						present.set(v);
+						inDegrees[v]++;
+					}
+				}
+			}
+		});
+		numIds = present.length();
+	}
+	
+	/**
+	 * Splits the node ids in intervals holding an equal number
+	 *  of incoming links, one interval per shard
+	 * @param minShards: the minimal number of shards asked for
+	 */
+	private void planShards(int minShards) {
+		int numShards = (int) Math.max(Math.max(minShards, 1), (numLinks + MAX_EDGES_PER_SHARD - 1) / MAX_EDGES_PER_SHARD);
+		rangeStarts = new int[numShards + 1];
+		long cumulativeLinks = 0;
+		int shard = 1;
+		for (int v = 0; v < numIds && shard < numShards; v++) {
+			cumulativeLinks += inDegrees[v];
+			if (cumulativeLinks >= numLinks * shard / numShards) {
+				rangeStarts[shard++] = v + 1;
+			}
+		}
+		for (; shard <= numShards; shard++) { // The remaining shards end at the highest id
+			rangeStarts[shard] = numIds;
+		}
+		inDegrees = null; // No longer needed
+	}
+	
+	private int shardOf(int nodeIndex) {
+		int low = 0, high = rangeStarts.length - 2; // Find the last shard starting at or before the node
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (rangeStarts[middle] <= nodeIndex) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Second pass: writes every link to the shard of its
+	 *  destination and maps the shard files into memory
+	 */
+	private void writeShards(Configuration conf, String inputPath) throws IOException {
+		String parentDir = conf.get(SHARD_DIR);
+		if (parentDir != null) {
+			new File(parentDir).mkdirs();
+			shardDir = Files.createTempDirectory(Paths.get(parentDir), "pagerank-shards").toFile();
+		}
+		else {
+			shardDir = Files.createTempDirectory("pagerank-shards").toFile();
+		}
+		int numShards = rangeStarts.length - 1;
+		shardFiles = new File[numShards];
+		final DataOutputStream[] outs = new DataOutputStream[numShards];
+		for (int k = 0; k < numShards; k++) {
+			shardFiles[k] = new File(shardDir, String.format("shard-%05d", k));
+			outs[k] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(shardFiles[k]), 1 << 16));
+		}
+		streamGraph(conf, inputPath, new NodeHandler() {
+			private AdjacencyWritable.Cursor cursor = new AdjacencyWritable.Cursor();
+			
+			@Override
+			public void handle(Node node) throws IOException {
+				if (node.hasStructure()) {
+					int u = (int) node.getNodeId().get();
+					cursor.reset(node.getAdjacencyList());
+					while (cursor.hasNext()) {
+						int v = (int) cursor.next();
+						DataOutputStream out = outs[shardOf(v)];
+						out.writeInt(u);
+						out.writeInt(v);
+					}
+				}
+			}
+		});
+		
+		shardBuffers = new MappedByteBuffer[numShards];
+		for (int k = 0; k < numShards; k++) {
+			outs[k].close();
+			RandomAccessFile file = new RandomAccessFile(shardFiles[k], "r");
+			shardBuffers[k] = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()); // The mapping stays valid after closing the file
+			file.close();
+		}
+	}
+	
+	/**
+	 * Loads the graph in three passes: counting the links,
+	 *  planning the shards and writing and mapping the shards
+	 */
+	@Override
+	protected String loadGraph(Configuration conf, String inputPath, int threads) throws IOException {
+		countLinks(conf, inputPath);
+		planShards(conf.getInt(SHARDS, threads));
+		writeShards(conf, inputPath);
+		receivedMass = new double[numIds];
+		contributions = new double[numIds];
+		for (int u = 0; u < numIds; u++) {
+			contributions[u] = outDegrees[u] > 0 ? pageranks[u] / outDegrees[u] : 0.0;
+		}
+		return String.format("Sharded %d nodes and %d links into %d shards", present.cardinality(), numLinks, rangeStarts.length - 1);
+	}
+	
+	/**
+	 * Streams one shard and sums the mass received by the
+	 *  nodes of its interval, returning the summed mass
+	 */
+	@Override
+	protected double pullRange(int shard) {
+		int start = rangeStarts[shard], end = rangeStarts[shard + 1];
+		Arrays.fill(receivedMass, start, end, 0.0);
+		ByteBuffer buffer = shardBuffers[shard].duplicate(); // A position of its own, the contents are shared
+		buffer.position(0);
+		while (buffer.remaining() >= EDGE_BYTES) {
+			int u = buffer.getInt();
+			int v = buffer.getInt();
+			receivedMass[v] += contributions[u]; // Only this shard writes to the nodes of its interval
+		}
+		double mass = 0.0;
+		for (int v = start; v < end; v++) {
+			mass += receivedMass[v];
+		}
+		return mass;
+	}
+	
+	/**
+	 * Adds the random jump factor and a part of the missing mass
+	 *  for the nodes of the interval of one shard, and computes
+	 *  the mass they send in the next iteration
+	 */
+	@Override
+	protected void finalizeRange(int shard, long numNodes, double lostPagerankJuicePart) {
+		for (int v = rangeStarts[shard]; v < rangeStarts[shard + 1]; v++) {
+			if (present.get(v)) {
+				pageranks[v] = Pagerank.finalizePagerank(receivedMass[v], numNodes, lostPagerankJuicePart);
+				contributions[v] = outDegrees[v] > 0 ? pageranks[v] / outDegrees[v] : 0.0;
+			}
+		}
+	}
+	
+	/**
+	 * Last pass: streams the input once more to write every
+	 *  node with its new Pagerank in the text format of the
+	 *  Pagerank job, followed by the nodes which are only linked to
+	 */
+	@Override
+	protected void writeGraph(Configuration conf, String inputPath, String outputPath) throws IOException {
+		FileSystem fs = FileSystem.get(conf);
+		final BufferedWriter bwr = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(outputPath + "/part-r-00000"), false)));
+		streamGraph(conf, inputPath, new NodeHandler() {
+			@Override
+			public void handle(Node node) throws IOException {
+				node.setPagerank(pageranks[(int) node.getNodeId().get()]);
+				bwr.write(node.getNodeId().get() + "\t" + node.structure() + "\n");
+			}
+		});
+		for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+			if (!inInput.get(v)) {
+				bwr.write(v + "\t" + pageranks[v] + "\n");
+			}
+		}
+		bwr.flush();
+		bwr.close();
+	}
+	
+	/**
+	 * Drops the mappings of the shards and deletes them with their directory
+	 */
+	@Override
+	protected void releaseGraph() {
+		shardBuffers = null;
+		if (shardDir == null) {
+			return;
+		}
+		shardDir.deleteOnExit(); // Registered before its files, so it is deleted after them
+		for (File shardFile : shardFiles) {
+			if (shardFile != null && !shardFile.delete()) {
+				shardFile.deleteOnExit(); // Still mapped, hence retry when the program ends
+			}
+		}
+		shardDir.delete();
+	}
+	
+	@Override
+	protected void printOptions() {
+		System.out.println("\t -D " + SHARDS + "=<number> (minimal number of shards, default the number of threads, raised to keep at most " + MAX_EDGES_PER_SHARD + " links per shard)");
+		System.out.println("\t -D " + SHARD_DIR + "=<local path> (directory to create the shard directory of a run in, default the temporary directory)");
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new ShardedPagerank(), args);
+		System.exit(result);
+	}
+}
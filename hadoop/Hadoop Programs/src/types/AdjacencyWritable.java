@@ -0,0 +1,206 @@
+package types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A compact adjacency list of node ids. The ids are kept
+ *  sorted and without duplicates, and are stored as the
+ *  varint encoded gaps between them in a single byte array.
+ *  The ids can be walked through with a reusable Cursor,
+ *  so no object is created per link.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class AdjacencyWritable implements Writable {
+	
+	private byte[] bytes; // The varint encoded gaps between the sorted ids
+	private int length; // Number of bytes in use
+	private int size; // Number of ids stored
+	
+	public AdjacencyWritable() {
+		bytes = new byte[0];
+		length = 0;
+		size = 0;
+	}
+	
+	public AdjacencyWritable(long[] ids) {
+		this();
+		set(ids, ids.length);
+	}
+	
+	/**
+	 * A cursor over the ids of an adjacency list, which
+	 *  can be reset and reused for every list walked through
+	 */
+	public static class Cursor {
+		
+		private byte[] bytes;
+		private int position, remaining;
+		private long current;
+		
+		public Cursor reset(AdjacencyWritable adjacency) {
+			bytes = adjacency.bytes;
+			position = 0;
+			remaining = adjacency.size;
+			current = 0;
+			return this;
+		}
+		
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+		
+		public long next() {
+			long gap = 0;
+			int shift = 0;
+			byte b;
+			do { // Decode the next varint, seven bits at a time
+				b = bytes[position++];
+				gap |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			current += gap;
+			remaining--;
+			return current;
+		}
+	}
+	
+	/**
+	 * Sets the ids of this list. A sorted copy of the
+	 *  ids is made, from which duplicates are dropped
+	 * @param ids: array holding the ids to store
+	 * @param count: the number of ids in use in the array
+	 */
+	public void set(long[] ids, int count) {
+		long[] sorted = Arrays.copyOf(ids, count);
+		Arrays.sort(sorted);
+		ensureCapacity(count * 10); // A varint of a long takes at most ten bytes
+		length = 0;
+		size = 0;
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			if (i > 0 && sorted[i] == previous) { // Duplicate link, hence skip
+				continue;
+			}
+			writeVarLong(sorted[i] - previous);
+			previous = sorted[i];
+			size++;
+		}
+	}
+	
+	/**
+	 * Copies the contents of another list into this one,
+	 *  reusing the byte array of this list when large enough
+	 * @param other: the AdjacencyWritable to copy
+	 */
+	public void set(AdjacencyWritable other) {
+		ensureCapacity(other.length);
+		System.arraycopy(other.bytes, 0, bytes, 0, other.length);
+		length = other.length;
+		size = other.size;
+	}
+	
+	public void clear() {
+		length = 0;
+		size = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return a new array holding all the ids in sorted order
+	 */
+	public long[] toArray() {
+		long[] ids = new long[size];
+		Cursor cursor = new Cursor().reset(this);
+		for (int i = 0; cursor.hasNext(); i++) {
+			ids[i] = cursor.next();
+		}
+		return ids;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (bytes.length < capacity) {
+			bytes = new byte[Math.max(capacity, bytes.length * 2)];
+		}
+	}
+	
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		size = WritableUtils.readVInt(in);
+		length = WritableUtils.readVInt(in);
+		if (bytes.length < length) {
+			bytes = new byte[length];
+		}
+		in.readFully(bytes, 0, length);
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, size);
+		WritableUtils.writeVInt(out, length);
+		out.write(bytes, 0, length);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		Cursor cursor = new Cursor().reset(this);
+		while (cursor.hasNext()) {
+			b.append(cursor.next());
+			if (cursor.hasNext()) {
+				b.append("\t");
+			}
+		}
+		return b.toString();
+	}
+	
+	@Override
+	public int hashCode() {
+		int result = size;
+		for (int i = 0; i < length; i++) {
+			result = 163 * result + bytes[i];
+		}
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		AdjacencyWritable a = (AdjacencyWritable) o;
+		if (size != a.size || length != a.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != a.bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,207 @@
+package types;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive longs to
+ *  primitive doubles, used to sum up values per key
+ *  without boxing a key or a value. The slots in use
+ *  can be walked through with nextSlot(), so iterating
+ *  the map does not create any object either. A map can
+ *  hold a fixed width row of doubles per key instead, to
+ *  sum up vectors of values.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class LongDoubleMap {
+	
+	public static final int BYTES_PER_SLOT = 17; // A long key, a double value and a used flag
+	public static final int BYTES_PER_VALUE = 8; // Every further double of a row
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private long[] keys;
+	private double[] values;
+	private boolean[] used;
+	private int size, mask, resizeThreshold;
+	private int width; // Number of doubles per key
+	
+	public LongDoubleMap() {
+		this(1024);
+	}
+	
+	public LongDoubleMap(int initialCapacity) {
+		this(initialCapacity, 1);
+	}
+	
+	/**
+	 * @param initialCapacity: the number of entries the map holds before it grows
+	 * @param width: the number of doubles stored per key
+	 */
+	public LongDoubleMap(int initialCapacity, int width) {
+		this.width = width;
+		int capacity = 1;
+		while (capacity < initialCapacity / LOAD_FACTOR) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+	
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new double[capacity * width];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+		size = 0;
+	}
+	
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ids over the table
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+	
+	/**
+	 * Adds a value to the sum stored for a key
+	 * @param key: the key to add the value to
+	 * @param value: the value to add
+	 */
+	public void add(long key, double value) {
+		values[findSlot(key) * width] += value;
+		grow();
+	}
+	
+	/**
+	 * Adds a row of values to the sums stored for a key
+	 * @param key: the key to add the values to
+	 * @param row: array holding at least width values to add
+	 */
+	public void add(long key, double[] row) {
+		int offset = findSlot(key) * width;
+		for (int k = 0; k < width; k++) {
+			values[offset + k] += row[k];
+		}
+		grow();
+	}
+	
+	/**
+	 * @return the slot holding the key, claiming an empty slot with zero sums if the key is absent
+	 */
+	private int findSlot(long key) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		used[i] = true;
+		keys[i] = key;
+		Arrays.fill(values, i * width, (i + 1) * width, 0.0);
+		size++;
+		return i;
+	}
+	
+	private void grow() {
+		if (size > resizeThreshold) {
+			resize();
+		}
+	}
+	
+	/**
+	 * @param key: the key to look up
+	 * @param defaultValue: the value returned if the key is absent
+	 * @return the sum stored for the key
+	 */
+	public double get(long key, double defaultValue) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				return values[i * width];
+			}
+			i = (i + 1) & mask;
+		}
+		return defaultValue;
+	}
+	
+	private void resize() {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				System.arraycopy(oldValues, i * width, values, findSlot(oldKeys[i]) * width, width);
+			}
+		}
+	}
+	
+	/**
+	 * Walks through the slots in use, for example:
+	 *  for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot))
+	 * @param slot: the previous slot returned, or -1 to start
+	 * @return the next slot in use, or -1 if there are none left
+	 */
+	public int nextSlot(int slot) {
+		for (int i = slot + 1; i < used.length; i++) {
+			if (used[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+	
+	public double valueAt(int slot) {
+		return values[slot * width];
+	}
+	
+	/**
+	 * @param slot: a slot in use
+	 * @param k: the index in the row of the slot
+	 * @return the k-th sum stored in the slot
+	 */
+	public double valueAt(int slot, int k) {
+		return values[slot * width + k];
+	}
+	
+	public int width() {
+		return width;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Removes all entries, but keeps the allocated table for reuse
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+	
+	/**
+	 * @param memory: the number of bytes the table may take
+	 * @return the number of entries a table of this size holds before it grows
+	 */
+	public static int entriesForMemory(long memory) {
+		return entriesForMemory(memory, 1);
+	}
+	
+	/**
+	 * @param memory: the number of bytes the table may take
+	 * @param width: the number of doubles stored per key
+	 * @return the number of entries a table of this size holds before it grows
+	 */
+	public static int entriesForMemory(long memory, int width) {
+		long capacity = Long.highestOneBit(Math.max(memory / (BYTES_PER_SLOT + (width - 1) * BYTES_PER_VALUE), 2));
+		return (int) Math.min(capacity * LOAD_FACTOR, Integer.MAX_VALUE);
+	}
+}
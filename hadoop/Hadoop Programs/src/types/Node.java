@@ -8,6 +8,7 @@ import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
 
 /**
  * An object to store a node in a graph
@@ -16,10 +17,20 @@ import org.apache.hadoop.io.WritableComparable;
  */
 public class Node implements WritableComparable<Node> {
 	
+	private static final byte COMPLETE = 1; // Bits of the flags byte written first, stating the kind of node and which optional fields follow
+	private static final byte STRUCTURE = 1 << 1;
+	private static final byte MASS = 1 << 2;
+	private static final byte FILLED_LIST = 1 << 3;
+	private static final byte RESIDUAL = 1 << 4;
+	private static final byte PAGERANKS = 1 << 5;
+	private static final byte HISTORY = 1 << 6;
+	
 	private BooleanWritable complete, structure, mass, hasFilledList;
 	private LongWritable nodeId;
-	private DoubleWritable pagerank;
-	private LongArrayWritable adjacencyList;
+	private DoubleWritable pagerank, residual; // The residual holds the change in Pagerank not yet send on, used in delta mode
+	private AdjacencyWritable adjacencyList;
+	private double[] pageranks; // A vector of Pageranks, one per seed set, used by the PersonalizedPagerank
+	private double[] history; // The Pageranks of earlier iterations, most recent first, used for extrapolation
 	
 	public Node() {
 		complete = new BooleanWritable(false);
@@ -28,7 +39,10 @@ public class Node implements WritableComparable<Node> {
 		hasFilledList = new BooleanWritable(false);
 		nodeId = new LongWritable(0);
 		pagerank = new DoubleWritable(0.0f);
-		adjacencyList = null;
+		residual = new DoubleWritable(0.0f);
+		adjacencyList = new AdjacencyWritable();
+		pageranks = new double[0];
+		history = new double[0];
 	}
 	
 	public LongWritable getNodeId() {
@@ -55,23 +69,61 @@ public class Node implements WritableComparable<Node> {
 		this.pagerank = pagerank;
 	}
 	
-	public LongArrayWritable getAdjacencyList() {
+	public DoubleWritable getResidual() {
+		return residual;
+	}
+	
+	public void setResidual(double residual) {
+		this.residual.set(residual);
+	}
+	
+	public double[] getPageranks() {
+		return pageranks;
+	}
+	
+	/**
+	 * Shares the given vector with this node; it is not copied
+	 * @param pageranks: array holding a Pagerank per seed set
+	 */
+	public void setPageranks(double[] pageranks) {
+		this.pageranks = pageranks;
+	}
+	
+	public boolean hasPageranks() {
+		return pageranks.length > 0;
+	}
+	
+	public double[] getHistory() {
+		return history;
+	}
+	
+	/**
+	 * Shares the given history with this node; it is not copied
+	 * @param history: array holding the Pageranks of earlier iterations, most recent first
+	 */
+	public void setHistory(double[] history) {
+		this.history = history;
+	}
+	
+	public AdjacencyWritable getAdjacencyList() {
 		return adjacencyList;
 	}
 	
-	public void setAdjacencyList(LongArrayWritable adjacencyList) {
-		if (adjacencyList != null) {
+	/**
+	 * Shares the given list with this node; it is not copied
+	 * @param adjacencyList: the AdjacencyWritable to use, ignored if null or empty
+	 */
+	public void setAdjacencyList(AdjacencyWritable adjacencyList) {
+		if (adjacencyList != null && !adjacencyList.isEmpty()) {
 			hasFilledList.set(true);
 			this.adjacencyList = adjacencyList;
 		}
 	}
 	
-	public void setAdjacencyList(LongWritable[] adjacencyArray) {
+	public void setAdjacencyList(long[] adjacencyArray) {
 		if (adjacencyArray.length > 0) {
 			hasFilledList.set(true);
-			LongArrayWritable linksWritable = new LongArrayWritable(LongWritable.class);
-			linksWritable.set(adjacencyArray);
-			adjacencyList = linksWritable;
+			adjacencyList = new AdjacencyWritable(adjacencyArray);
 		}
 	}
 	
@@ -103,48 +155,140 @@ public class Node implements WritableComparable<Node> {
 		return hasFilledList.get();
 	}
 	
+	/**
+	 * Parse a line of the form 'nodeId pagerank [links]', as
+	 *  written by the GraphParser and the Pagerank jobs, into
+	 *  this node and mark it as a complete node. The Pagerank
+	 *  may be a comma terminated vector, as written by the
+	 *  PersonalizedPagerank job.
+	 * @param line: String containing the textual form of a node
+	 */
+	public void parse(String line) {
+		String terms[] = line.split("\\s+");
+		setNodeId(Long.parseLong(terms[0]));
+		if (terms[1].indexOf(',') >= 0) {
+			String[] ranks = terms[1].split(","); // Drops the trailing empty term
+			pageranks = new double[ranks.length];
+			for (int k = 0; k < ranks.length; k++) {
+				pageranks[k] = Double.parseDouble(ranks[k]);
+			}
+		}
+		else {
+			setPagerank(Double.parseDouble(terms[1]));
+			pageranks = new double[0];
+		}
+		
+		long[] links = new long[terms.length - 2];
+		for (int i = 2; i < terms.length; i++) {
+			links[i - 2] = Long.parseLong(terms[i]);
+		}
+		hasFilledList.set(links.length > 0); // Reset the list, since this node object might be reused
+		adjacencyList.set(links, links.length);
+		setAsCompleteNode();
+	}
+	
+	private String rank() {
+		if (pageranks.length == 0) {
+			return pagerank.toString();
+		}
+		StringBuilder b = new StringBuilder();
+		for (int k = 0; k < pageranks.length; k++) { // Every term ends in a comma, so a vector of one is not read back as a scalar
+			b.append(pageranks[k]).append(",");
+		}
+		return b.toString();
+	}
+	
 	public String structure() {
 		if (hasFilledList.get()) {
-			return pagerank.toString() + "\t" + adjacencyList.toString();
+			return rank() + "\t" + adjacencyList.toString();
 		}
 		else {
-			return pagerank.toString();
+			return rank();
 		}
 	}
 	
 	@Override
 	public String toString() {
 		if (hasFilledList.get()) {
-			return nodeId.toString() + "\t" + pagerank.toString() + "\t" + adjacencyList.toString();
+			return nodeId.toString() + "\t" + rank() + "\t" + adjacencyList.toString();
 		}
 		else {
-			return nodeId.toString() + "\t" + pagerank.toString();
+			return nodeId.toString() + "\t" + rank();
 		}
 	}
 	
+	/**
+	 * Reads a node written by write(); the residual, the
+	 *  vector and the history are only read if their flag is
+	 *  set, else they are reset
+	 */
 	@Override
 	public void readFields(DataInput in) throws IOException {
-		complete.readFields(in);
-		structure.readFields(in);
-		mass.readFields(in);
-		hasFilledList.readFields(in);
+		byte flags = in.readByte();
+		complete.set((flags & COMPLETE) != 0);
+		structure.set((flags & STRUCTURE) != 0);
+		mass.set((flags & MASS) != 0);
+		hasFilledList.set((flags & FILLED_LIST) != 0);
 		nodeId.readFields(in);
 		pagerank.readFields(in);
+		residual.set((flags & RESIDUAL) != 0 ? in.readDouble() : 0.0);
+		int width = (flags & PAGERANKS) != 0 ? WritableUtils.readVInt(in) : 0;
+		if (pageranks.length != width) {
+			pageranks = new double[width];
+		}
+		for (int k = 0; k < width; k++) {
+			pageranks[k] = in.readDouble();
+		}
+		int depth = (flags & HISTORY) != 0 ? WritableUtils.readVInt(in) : 0;
+		if (history.length != depth) {
+			history = new double[depth];
+		}
+		for (int k = 0; k < depth; k++) {
+			history[k] = in.readDouble();
+		}
 		//TODO System.out.printf("STRUCT: %b NODEID: %d PAGERANK: %f\n", structure.get(), nodeId.get(), pagerank.get());
-		if (hasFilledList.get()) {
-			adjacencyList = new LongArrayWritable(LongWritable.class);
+		if (hasFilledList.get()) { // The list is reused, hence a node read in should be copied before the next read
 			adjacencyList.readFields(in);
 		}
+		else {
+			adjacencyList.clear();
+		}
 	}
 	
+	/**
+	 * Writes a flags byte holding the kind of node, followed by
+	 *  the id, the Pagerank and only the optional fields in use,
+	 *  so a plain Pagerank node costs no more than its id, rank
+	 *  and links
+	 */
 	@Override
 	public void write(DataOutput out) throws IOException {
-		complete.write(out);
-		structure.write(out);
-		mass.write(out);
-		hasFilledList.write(out);
+		byte flags = 0;
+		flags |= complete.get() ? COMPLETE : 0;
+		flags |= structure.get() ? STRUCTURE : 0;
+		flags |= mass.get() ? MASS : 0;
+		flags |= hasFilledList.get() ? FILLED_LIST : 0;
+		flags |= residual.get() != 0.0 ? RESIDUAL : 0;
+		flags |= pageranks.length > 0 ? PAGERANKS : 0;
+		flags |= history.length > 0 ? HISTORY : 0;
+		out.writeByte(flags);
 		nodeId.write(out);
 		pagerank.write(out);
+		if ((flags & RESIDUAL) != 0) {
+			residual.write(out);
+		}
+		if ((flags & PAGERANKS) != 0) {
+			WritableUtils.writeVInt(out, pageranks.length);
+			for (int k = 0; k < pageranks.length; k++) {
+				out.writeDouble(pageranks[k]);
+			}
+		}
+		if ((flags & HISTORY) != 0) {
+			WritableUtils.writeVInt(out, history.length);
+			for (int k = 0; k < history.length; k++) {
+				out.writeDouble(history[k]);
+			}
+		}
 		if (hasFilledList.get()) {
 			adjacencyList.write(out);
 		}
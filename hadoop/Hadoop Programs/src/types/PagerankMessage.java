@@ -0,0 +1,211 @@
+package types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A message send between the Map and Reduce tasks
+ *  of Pagerank. A one byte tag states whether it is
+ *  a rank contribution, the structure of a node or, in
+ *  delta mode, the rank and residual of a node, hence
+ *  a mass message takes nine bytes only. The
+ *  PersonalizedPagerank sends a vector of masses instead,
+ *  packed as plain doubles, as is the Pagerank history
+ *  of a node when extrapolating. Every field is reused
+ *  when a message is read in.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class PagerankMessage implements Writable {
+	
+	public static final byte MASS = 0;
+	public static final byte STRUCTURE = 1;
+	public static final byte STATE = 2;
+	public static final byte MASS_VECTOR = 3;
+	public static final byte HISTORY = 4;
+	
+	private byte type;
+	private double mass, residual; // The mass holds the rank of the node in a state message
+	private AdjacencyWritable adjacencyList;
+	private double[] masses; // Only the first width masses are in use | holds the Pageranks in a history message
+	private int width;
+	
+	public PagerankMessage() {
+		type = MASS;
+		mass = 0.0;
+		residual = 0.0;
+		adjacencyList = new AdjacencyWritable();
+		masses = new double[0];
+		width = 0;
+	}
+	
+	public void setMass(double mass) {
+		type = MASS;
+		this.mass = mass;
+	}
+	
+	/**
+	 * Turns this message into a mass vector message
+	 * @param masses: array holding the masses, copied into this message
+	 * @param width: the number of masses in use in the array
+	 */
+	public void setMasses(double[] masses, int width) {
+		type = MASS_VECTOR;
+		ensureWidth(width);
+		System.arraycopy(masses, 0, this.masses, 0, width);
+	}
+	
+	/**
+	 * Turns this message into a history message
+	 * @param history: array holding the Pageranks of earlier iterations, most recent first, copied into this message
+	 * @param depth: the number of Pageranks in use in the array
+	 */
+	public void setHistory(double[] history, int depth) {
+		setMasses(history, depth);
+		type = HISTORY;
+	}
+	
+	private void ensureWidth(int width) {
+		if (masses.length < width) {
+			masses = new double[width];
+		}
+		this.width = width;
+	}
+	
+	/**
+	 * Turns this message into a state message
+	 * @param pagerank: the current Pagerank of the node
+	 * @param residual: the change in Pagerank of the node not yet send on
+	 */
+	public void setState(double pagerank, double residual) {
+		type = STATE;
+		mass = pagerank;
+		this.residual = residual;
+	}
+	
+	/**
+	 * Turns this message into a structure message
+	 * @param adjacencyList: the links of the node, copied into this message | null for a dangling node
+	 */
+	public void setStructure(AdjacencyWritable adjacencyList) {
+		type = STRUCTURE;
+		if (adjacencyList != null) {
+			this.adjacencyList.set(adjacencyList);
+		}
+		else {
+			this.adjacencyList.clear();
+		}
+	}
+	
+	public boolean isMass() {
+		return type == MASS;
+	}
+	
+	public boolean isStructure() {
+		return type == STRUCTURE;
+	}
+	
+	public boolean isState() {
+		return type == STATE;
+	}
+	
+	public boolean isMassVector() {
+		return type == MASS_VECTOR;
+	}
+	
+	public boolean isHistory() {
+		return type == HISTORY;
+	}
+	
+	public double getMass() {
+		return mass;
+	}
+	
+	public double getResidual() {
+		return residual;
+	}
+	
+	/**
+	 * @return the array holding the masses of a mass vector message, or the Pageranks of a history message, of which getWidth() are in use
+	 */
+	public double[] getMasses() {
+		return masses;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public AdjacencyWritable getAdjacencyList() {
+		return adjacencyList;
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		type = in.readByte();
+		if (type == MASS) {
+			mass = in.readDouble();
+		}
+		else if (type == STATE) {
+			mass = in.readDouble();
+			residual = in.readDouble();
+		}
+		else if (type == MASS_VECTOR || type == HISTORY) {
+			ensureWidth(WritableUtils.readVInt(in));
+			for (int k = 0; k < width; k++) {
+				masses[k] = in.readDouble();
+			}
+		}
+		else {
+			adjacencyList.readFields(in);
+		}
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(type);
+		if (type == MASS) {
+			out.writeDouble(mass);
+		}
+		else if (type == STATE) {
+			out.writeDouble(mass);
+			out.writeDouble(residual);
+		}
+		else if (type == MASS_VECTOR || type == HISTORY) {
+			WritableUtils.writeVInt(out, width);
+			for (int k = 0; k < width; k++) {
+				out.writeDouble(masses[k]);
+			}
+		}
+		else {
+			adjacencyList.write(out);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		if (type == MASS) {
+			return Double.toString(mass);
+		}
+		else if (type == STATE) {
+			return mass + "\t" + residual;
+		}
+		else if (type == MASS_VECTOR || type == HISTORY) {
+			StringBuilder b = new StringBuilder();
+			for (int k = 0; k < width; k++) {
+				if (k > 0) {
+					b.append(",");
+				}
+				b.append(masses[k]);
+			}
+			return b.toString();
+		}
+		else {
+			return adjacencyList.toString();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableComparable;
+
+/**
+ * The key of a walk segment in a doubling round of the Monte
+ *  Carlo Pagerank: the node the segment is sent to and the
+ *  tag of the segment. Sorting on the tag as well lets the
+ *  continuations of a node reach its Reduce call first.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class WalkKey implements WritableComparable<WalkKey> {
+	
+	public static final int SIZE = 9; // The number of bytes written, the node id followed by the tag
+	
+	private long nodeId;
+	private byte type;
+	
+	public WalkKey() {
+		nodeId = 0;
+		type = WalkSegment.WALK;
+	}
+	
+	public void set(long nodeId, byte type) {
+		this.nodeId = nodeId;
+		this.type = type;
+	}
+	
+	public long getNodeId() {
+		return nodeId;
+	}
+	
+	public byte getType() {
+		return type;
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(nodeId);
+		out.writeByte(type);
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		nodeId = in.readLong();
+		type = in.readByte();
+	}
+	
+	@Override
+	public int hashCode() { // The node id only, so every tag of a node goes to the same partition
+		return (int) (nodeId ^ (nodeId >>> 32));
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		WalkKey wk = (WalkKey) o;
+		return nodeId == wk.getNodeId() && type == wk.getType();
+	}
+	
+	@Override
+	public String toString() {
+		return nodeId + "\t" + type;
+	}
+	
+	@Override
+	public int compareTo(WalkKey wk) {
+		if (nodeId != wk.getNodeId()) {
+			return nodeId < wk.getNodeId() ? -1 : 1;
+		}
+		return type - wk.getType();
+	}
+}
@@ -0,0 +1,167 @@
+package types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A segment of a random walk, as used by the Monte Carlo
+ *  Pagerank. It holds the node the walk started at, the
+ *  index of the walk at that node, the nodes visited so
+ *  far and whether the walk stopped. A one byte tag states
+ *  the role of the segment in a doubling round. The path is
+ *  reused when a segment is read in.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class WalkSegment implements Writable {
+	
+	public static final byte CONTINUATION = 0; // A segment offered to extend the walks ending at its start, sorted first in a doubling round
+	public static final byte WALK = 1; // A segment to be extended, or the result of a round
+	public static final byte FINISHED = 2; // A stopped walk, passed on as is
+	
+	private byte type;
+	private long start;
+	private int index;
+	private boolean stopped;
+	private long[] path; // The visited nodes, starting with the start node
+	private int length;
+	
+	public WalkSegment() {
+		type = WALK;
+		path = new long[8];
+		length = 0;
+	}
+	
+	/**
+	 * Starts a new segment at a node
+	 * @param start: the id of the node the walk starts at
+	 * @param index: the index of the walk at the node
+	 */
+	public void set(long start, int index) {
+		this.start = start;
+		this.index = index;
+		stopped = false;
+		length = 0;
+		add(start);
+	}
+	
+	/**
+	 * Copies the contents of another segment into this one
+	 * @param other: the WalkSegment to copy
+	 */
+	public void set(WalkSegment other) {
+		type = other.type;
+		start = other.start;
+		index = other.index;
+		stopped = other.stopped;
+		ensureCapacity(other.length);
+		System.arraycopy(other.path, 0, path, 0, other.length);
+		length = other.length;
+	}
+	
+	public void add(long nodeId) {
+		ensureCapacity(length + 1);
+		path[length++] = nodeId;
+	}
+	
+	/**
+	 * Extends this segment with a segment starting at the node
+	 *  this one ends at; the walk stops if the other one did
+	 * @param next: the WalkSegment to append
+	 */
+	public void append(WalkSegment next) {
+		ensureCapacity(length + next.length - 1);
+		System.arraycopy(next.path, 1, path, length, next.length - 1);
+		length += next.length - 1;
+		stopped = next.stopped;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (path.length < capacity) {
+			path = Arrays.copyOf(path, Math.max(capacity, path.length * 2));
+		}
+	}
+	
+	public void setType(byte type) {
+		this.type = type;
+	}
+	
+	public byte getType() {
+		return type;
+	}
+	
+	public long getStart() {
+		return start;
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	public long getEnd() {
+		return path[length - 1];
+	}
+	
+	public void setStopped(boolean stopped) {
+		this.stopped = stopped;
+	}
+	
+	public boolean isStopped() {
+		return stopped;
+	}
+	
+	/**
+	 * @param i: the position in the walk
+	 * @return the id of the node visited at the position
+	 */
+	public long getVisit(int i) {
+		return path[i];
+	}
+	
+	/**
+	 * @return the number of visits, which is the number of steps plus one
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		type = in.readByte();
+		start = in.readLong();
+		index = WritableUtils.readVInt(in);
+		stopped = in.readBoolean();
+		length = WritableUtils.readVInt(in);
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			path[i] = in.readLong();
+		}
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(type);
+		out.writeLong(start);
+		WritableUtils.writeVInt(out, index);
+		out.writeBoolean(stopped);
+		WritableUtils.writeVInt(out, length);
+		for (int i = 0; i < length; i++) {
+			out.writeLong(path[i]);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append(start).append(":").append(index).append(stopped ? " stopped" : "");
+		for (int i = 0; i < length; i++) {
+			b.append("\t").append(path[i]);
+		}
+		return b.toString();
+	}
+}
@@ -0,0 +1,437 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.hama.HamaConfiguration;
+import org.apache.hama.bsp.BSP;
+import org.apache.hama.bsp.BSPJob;
+import org.apache.hama.bsp.BSPPeer;
+import org.apache.hama.bsp.TextInputFormat;
+import org.apache.hama.bsp.TextOutputFormat;
+import org.apache.hama.bsp.sync.SyncException;
+
+import profiling.SuperstepProfiler;
+import types.LongDoubleMap;
+import types.PackedMessage;
+
+/**
+ * Hama program to run the Pagerank algorithm on a BSP of its
+ *  own instead of the graph package. Every peer stores the
+ *  vertices it owns in primitive arrays: the ids, the ranks
+ *  and the links in compressed sparse row form. A link points
+ *  to a target slot instead of a vertex id; the slots of a
+ *  peer hold the distinct vertices it links to, grouped per
+ *  owning peer. Three setup supersteps move every vertex to
+ *  its owner and tell every owner which vertices a peer will
+ *  send ranks for, after which every superstep sends only
+ *  one array of summed ranks per pair of peers, in the order
+ *  agreed upon. With -D localSweeps=n a peer updates its
+ *  vertices n times per superstep, spreading the rank over
+ *  the links within the peer again after every update, while
+ *  the ranks received from the other peers stay as they were
+ *  at the barrier. Only the first update sees fresh ranks of
+ *  all the vertices, hence its change is the residual. Reads
+ *  the input of the Pagerank program, and writes its output
+ *  format.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class ColumnarPagerank extends Configured implements Tool {
+	
+	public static final String LOCAL_SWEEPS = "localSweeps"; // Configuration key holding the number of updates of the ranks of a peer per superstep
+	
+	public static class ColumnarBSP extends BSP<LongWritable, Text, LongWritable, Text, PackedMessage> {
+		
+		private int numPeers, me, iterations, sweeps;
+		private long numVertices; // In the whole graph
+		private int size; // Number of vertices of this peer
+		private long[] ids;
+		private double[] ranks, received, local; // received: the rank from the other peers, local: the rank from this peer
+		private int[] offsets, targets; // The links of vertex v are targets[offsets[v]] up to targets[offsets[v + 1]], pointing to a slot
+		private long[] slotIds; // The vertex id of every slot
+		private int[] slotOffsets; // The slots of peer p are slotOffsets[p] up to slotOffsets[p + 1]
+		private int[] lostSlots; // Slots which are not a vertex of the graph
+		private double[] outgoing; // The summed rank per slot
+		private int[][] incoming; // Per sending peer, the local vertex of every slot it sends, -1 for none
+		private double change; // The summed change in rank of the last superstep
+		private double ownLostMass; // The mass lost by this peer when the ranks were last spread
+		private SuperstepProfiler<PackedMessage> profiler;
+		
+		@Override
+		public void setup(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) {
+			numPeers = peer.getNumPeers();
+			me = peer.getPeerIndex();
+			iterations = peer.getConfiguration().getInt("iterations", 0);
+			sweeps = Math.max(1, peer.getConfiguration().getInt(LOCAL_SWEEPS, 1));
+			change = 0.0;
+			profiler = new SuperstepProfiler<PackedMessage>(peer);
+		}
+		
+		@Override
+		public void bsp(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException, InterruptedException, SyncException {
+			long startTime = System.currentTimeMillis();
+			distributeVertices(peer);
+			profiler.sync();
+			buildPartition(peer);
+			profiler.sync();
+			resolveTargets(peer);
+			profiler.sync();
+			receiveMissing(peer);
+			if (me == 0) {
+				System.out.printf("Setup Finished in %f seconds | Vertices: %d Peer 0 vertices: %d edges: %d slots: %d\n", (System.currentTimeMillis() - startTime) / 1000.0, numVertices, size, offsets[size], slotIds.length);
+			}
+			
+			boolean converged = false;
+			for (int superstep = 1; superstep <= iterations && !converged; superstep++) {
+				sendRanks(peer);
+				profiler.sync();
+				double previousChange = receiveRanks(peer); // The change of the superstep before, as the messages are send before the update
+				if (superstep > 1 && me == 0) {
+					System.out.printf("Residual of superstep %d: %f\n", superstep - 1, previousChange);
+				}
+				if (superstep > 1 && previousChange < Pagerank.CONVERGENCE_POINT) {
+					if (me == 0) {
+						System.out.printf("Convergence point has been reached in iteration %d\n\n", superstep);
+					}
+					converged = true;
+				}
+			}
+			writeOutput(peer);
+			profiler.close();
+		}
+		
+		private int owner(long id) {
+			return (int) (((id % numPeers) + numPeers) % numPeers);
+		}
+		
+		/**
+		 * Reads in the vertices of the input split and sends
+		 *  every vertex to the peer owning it
+		 */
+		private void distributeVertices(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			LongWritable key = new LongWritable();
+			Text value = new Text();
+			while (peer.readNext(key, value)) {
+				String[] lines = value.toString().split("\n");
+				for (String line : lines) {
+					String[] vertexInfo = line.split("\\s+"); // The format of the PageRankTextReader: id, rank and the neighbors
+					if (vertexInfo.length < 2) {
+						continue;
+					}
+					long[] links = new long[vertexInfo.length - 2];
+					for (int j = 2; j < vertexInfo.length; j++) {
+						links[j - 2] = Long.parseLong(vertexInfo[j]);
+					}
+					long id = Long.parseLong(vertexInfo[0]);
+					PackedMessage message = new PackedMessage(PackedMessage.VERTEX, me, id, links, links.length);
+					message.setMass(Double.parseDouble(vertexInfo[1]));
+					profiler.send(peer.getPeerName(owner(id)), message);
+				}
+			}
+		}
+		
+		/**
+		 * Stores the received vertices in the arrays, gives every
+		 *  distinct target a slot, and sends every peer the ids
+		 *  of the slots it owns
+		 */
+		private void buildPartition(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			ids = new long[1024];
+			ranks = new double[1024];
+			offsets = new int[1025];
+			targets = new int[4096];
+			LongDoubleMap[] slotMaps = new LongDoubleMap[numPeers]; // Per owning peer, the slot of every target within the peer
+			for (int p = 0; p < numPeers; p++) {
+				slotMaps[p] = new LongDoubleMap();
+			}
+			
+			PackedMessage message;
+			size = 0;
+			int edges = 0;
+			while ((message = profiler.getCurrentMessage()) != null) {
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					ranks = Arrays.copyOf(ranks, size * 2);
+					offsets = Arrays.copyOf(offsets, size * 2 + 1);
+				}
+				if (edges + message.getLength() > targets.length) {
+					targets = Arrays.copyOf(targets, Math.max(targets.length * 2, edges + message.getLength()));
+				}
+				ids[size] = message.getId();
+				ranks[size] = message.getMass();
+				for (int i = 0; i < message.getLength(); i++) {
+					long target = message.getIds()[i];
+					int owner = owner(target);
+					int slot = (int) slotMaps[owner].get(target, -1.0);
+					if (slot < 0) {
+						slot = slotMaps[owner].size();
+						slotMaps[owner].add(target, slot);
+					}
+					targets[edges++] = slot * numPeers + owner; // The slot within the owning peer, made absolute once all slots are known
+				}
+				size++;
+				offsets[size] = edges;
+			}
+			ids = Arrays.copyOf(ids, size);
+			ranks = Arrays.copyOf(ranks, size);
+			offsets = Arrays.copyOf(offsets, size + 1);
+			targets = Arrays.copyOf(targets, edges);
+			
+			slotOffsets = new int[numPeers + 1];
+			for (int p = 0; p < numPeers; p++) {
+				slotOffsets[p + 1] = slotOffsets[p] + slotMaps[p].size();
+			}
+			slotIds = new long[slotOffsets[numPeers]];
+			for (int p = 0; p < numPeers; p++) {
+				for (int slot = slotMaps[p].nextSlot(-1); slot >= 0; slot = slotMaps[p].nextSlot(slot)) {
+					slotIds[slotOffsets[p] + (int) slotMaps[p].valueAt(slot)] = slotMaps[p].keyAt(slot);
+				}
+			}
+			for (int e = 0; e < edges; e++) {
+				targets[e] = slotOffsets[targets[e] % numPeers] + targets[e] / numPeers;
+			}
+			outgoing = new double[slotIds.length];
+			received = new double[size];
+			local = new double[size];
+			
+			for (int p = 0; p < numPeers; p++) { // Every peer hears from every peer, to count the vertices of the graph
+				long[] peerSlots = Arrays.copyOfRange(slotIds, slotOffsets[p], slotOffsets[p + 1]);
+				profiler.send(peer.getPeerName(p), new PackedMessage(PackedMessage.TARGETS, me, size, peerSlots, peerSlots.length));
+			}
+		}
+		
+		/**
+		 * Translates the slot ids received from every peer into
+		 *  local vertices, and tells the peer which of its slots
+		 *  are not a vertex of the graph
+		 */
+		private void resolveTargets(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			LongDoubleMap localIndex = new LongDoubleMap(size);
+			for (int v = 0; v < size; v++) {
+				localIndex.add(ids[v], v);
+			}
+			
+			incoming = new int[numPeers][];
+			numVertices = 0;
+			PackedMessage message;
+			while ((message = profiler.getCurrentMessage()) != null) {
+				numVertices += message.getId();
+				int[] index = new int[message.getLength()];
+				long[] missing = new long[16];
+				int numMissing = 0;
+				for (int k = 0; k < index.length; k++) {
+					index[k] = (int) localIndex.get(message.getIds()[k], -1.0);
+					if (index[k] < 0) {
+						if (numMissing == missing.length) {
+							missing = Arrays.copyOf(missing, numMissing * 2);
+						}
+						missing[numMissing++] = k;
+					}
+				}
+				incoming[message.getPeer()] = index;
+				if (numMissing > 0) {
+					profiler.send(peer.getPeerName(message.getPeer()), new PackedMessage(PackedMessage.MISSING, me, 0, missing, numMissing));
+				}
+			}
+		}
+		
+		/**
+		 * Marks the slots which are not a vertex of the graph;
+		 *  the mass send to them is lost, as for a dangling vertex
+		 */
+		private void receiveMissing(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			lostSlots = new int[16];
+			int numLost = 0;
+			PackedMessage message;
+			while ((message = profiler.getCurrentMessage()) != null) {
+				for (int k = 0; k < message.getLength(); k++) {
+					if (numLost == lostSlots.length) {
+						lostSlots = Arrays.copyOf(lostSlots, numLost * 2);
+					}
+					lostSlots[numLost++] = slotOffsets[message.getPeer()] + (int) message.getIds()[k];
+				}
+			}
+			lostSlots = Arrays.copyOf(lostSlots, numLost);
+		}
+		
+		/**
+		 * Sums up the rank send over the links per slot
+		 * @return the mass lost by this peer, by dangling vertices and links to missing vertices
+		 */
+		private double spreadRanks() {
+			double lostMass = 0.0;
+			Arrays.fill(outgoing, 0.0);
+			for (int v = 0; v < size; v++) {
+				int degree = offsets[v + 1] - offsets[v];
+				if (degree == 0) { // Dangling vertex
+					lostMass += ranks[v];
+					continue;
+				}
+				double share = ranks[v] / degree;
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					outgoing[targets[e]] += share;
+				}
+			}
+			for (int slot : lostSlots) {
+				lostMass += outgoing[slot];
+			}
+			return lostMass;
+		}
+		
+		/**
+		 * Sends every other peer the slots it owns in one message,
+		 *  together with the mass lost by this peer and the change
+		 *  of the previous superstep. This peer only gets the
+		 *  change, as it reads its own slots from the outgoing
+		 *  array.
+		 */
+		private void sendRanks(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			ownLostMass = spreadRanks();
+			for (int p = 0; p < numPeers; p++) { // Every peer sends to every peer, even without slots, so the lost mass and change reach all
+				double[] values = p == me ? new double[0] : Arrays.copyOfRange(outgoing, slotOffsets[p], slotOffsets[p + 1]);
+				profiler.send(peer.getPeerName(p), new PackedMessage(me, values, p == me ? 0.0 : ownLostMass, change));
+			}
+		}
+		
+		/**
+		 * Adds the received ranks to the local vertices and
+		 *  finishes the Pagerank calculation, as many times as
+		 *  there are local sweeps
+		 * @return the summed change in rank of all the peers in the previous superstep
+		 */
+		private double receiveRanks(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			double lostMass = 0.0, previousChange = 0.0;
+			Arrays.fill(received, 0.0);
+			PackedMessage message;
+			while ((message = profiler.getCurrentMessage()) != null) {
+				lostMass += message.getMass();
+				previousChange += message.getResidual();
+				int[] index = incoming[message.getPeer()];
+				double[] values = message.getValues();
+				for (int k = 0; k < message.getLength(); k++) {
+					if (index[k] >= 0) {
+						received[index[k]] += values[k];
+					}
+				}
+			}
+			
+			double jump = Pagerank.PageRankBSP.ALPHA / numVertices;
+			for (int sweep = 0; sweep < sweeps; sweep++) {
+				if (sweep > 0) { // The first sweep uses the ranks as send
+					ownLostMass = spreadRanks();
+				}
+				Arrays.fill(local, 0.0);
+				int[] index = incoming[me];
+				for (int k = 0; k < index.length; k++) {
+					if (index[k] >= 0) {
+						local[index[k]] += outgoing[slotOffsets[me] + k];
+					}
+				}
+				
+				double sweepChange = 0.0, lostMassPart = (lostMass + ownLostMass) / numVertices;
+				for (int v = 0; v < size; v++) {
+					double pagerank = jump + (1 - Pagerank.PageRankBSP.ALPHA) * (received[v] + local[v] + lostMassPart);
+					sweepChange += Math.abs(pagerank - ranks[v]);
+					ranks[v] = pagerank;
+				}
+				if (sweep == 0) {
+					change = sweepChange;
+				}
+			}
+			return previousChange;
+		}
+		
+		/**
+		 * Writes the vertices of this peer in the format of
+		 *  the PageRankOutputWriter
+		 */
+		private void writeOutput(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			LongWritable key = new LongWritable();
+			Text value = new Text();
+			StringBuilder sb = new StringBuilder();
+			for (int v = 0; v < size; v++) {
+				sb.setLength(0);
+				sb.append(ranks[v]);
+				sb.append("\t");
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					sb.append(slotIds[targets[e]]);
+					sb.append("\t");
+				}
+				key.set(ids[v]);
+				value.set(sb.toString());
+				peer.write(key, value);
+			}
+		}
+	}
+	
+	public static BSPJob createJob(HamaConfiguration conf, Path inputPath, Path outputPath) throws IOException {
+		BSPJob job = new BSPJob(conf, ColumnarPagerank.class); // Main settings
+		job.setJobName("Columnar PageRank");
+		job.setBspClass(ColumnarBSP.class);
+		job.setInputPath(inputPath); // Input settings
+		job.setInputFormat(TextInputFormat.class);
+		job.setInputKeyClass(LongWritable.class);
+		job.setInputValueClass(Text.class);
+		job.setOutputPath(outputPath); // Output settings
+		job.setOutputFormat(TextOutputFormat.class);
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Text.class);
+		
+		return job;
+	}
+	
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + LOCAL_SWEEPS + "=<number> (updates of the ranks of a peer per superstep, default 1)");
+		System.out.println("\t -D " + SuperstepProfiler.PROFILE + "=true (write a timeline of every peer to " + SuperstepProfiler.PROFILE_DIRECTORY + " in the output path)");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	/**
+	 * Runs the main program
+	 * 
+	 * @param args: String array of arguments given at start 
+	 * @return -1 in case of error | 0 in case of success
+	 * @throws Exception from the createJob() and the waitForCompletion() methods
+	 */
+	@Override
+	public int run(String[] args) throws Exception {
+		int iterations = 0;
+		HamaConfiguration conf = new HamaConfiguration(getConf());
+		
+		// Set arguments
+		if (args.length < 3) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			iterations = Integer.parseInt(args[2]);
+			conf.setInt("iterations", iterations);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integer instead of " + args[2]);
+			return printUsage();
+		}
+		
+		// Create and start a job
+		BSPJob job = createJob(conf, new Path(args[0]), new Path(args[1]));
+		long startTime = System.currentTimeMillis();
+		if (job.waitForCompletion(true)) {
+			System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+			SuperstepProfiler.summarize(conf, new Path(args[1]));
+		}
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new ColumnarPagerank(), args);
+		System.exit(result);
+	}
+}
@@ -20,6 +20,7 @@ import org.apache.hama.bsp.TextOutputFormat;
 import org.apache.hama.bsp.message.MessageManager;
 import org.apache.hama.bsp.sync.SyncException;
 
+import profiling.SuperstepProfiler;
 import types.TextIntPair;
 import types.TextIntPairArrayWritable;
 import types.TextLongPair;
@@ -61,6 +62,7 @@ public class InvertedIndex extends Configured implements Tool {
 		private HashMap<String, Integer> postingTupleMap;
 		private HashMap<String, ArrayList<TextIntPair>> invertedIndex;
 		private TextIntPairArrayWritable writablePostings;
+		private SuperstepProfiler<TextLongIntMessage> profiler;
 		
 		@Override
 		public void setup(BSPPeer<TextLongPair, IntWritable, Text, TextIntPairArrayWritable, TextLongIntMessage> peer) throws IOException { //initialize
@@ -72,6 +74,7 @@ public class InvertedIndex extends Configured implements Tool {
 			postingTupleMap = new HashMap<String, Integer>();
 			invertedIndex = new HashMap<String, ArrayList<TextIntPair>>(3053334); //3053334 is the optimal HashMap size in case 12 nodes perform this algorithm on the Wikipedia dump
 			writablePostings = new TextIntPairArrayWritable(TextIntPair.class);
+			profiler = new SuperstepProfiler<TextLongIntMessage>(peer);
 		}
 		
 		/**
@@ -87,7 +90,7 @@ public class InvertedIndex extends Configured implements Tool {
 			boolean finished = false;
 			while(!finished){
 				finished = createTermFrequencies(peer);
-				peer.sync();
+				profiler.sync();
 				createPostingsList(peer);
 			}
 		}
@@ -118,7 +121,7 @@ public class InvertedIndex extends Configured implements Tool {
 				for (Entry<String, Integer> entry : postingTupleMap.entrySet()) {
 					final TextLongIntMessage tuple = new TextLongIntMessage(entry.getKey(), docid, entry.getValue());
 					String other = peer.getPeerName(Math.abs(tuple.getTerm().hashCode()) % peer.getNumPeers());
-					peer.send(other, tuple);
+					profiler.send(other, tuple);
 				}
 				postingTupleMap.clear(); // Empty memory
 				
@@ -140,7 +143,7 @@ public class InvertedIndex extends Configured implements Tool {
 		private void createPostingsList(BSPPeer<TextLongPair, IntWritable, Text, TextIntPairArrayWritable, TextLongIntMessage> peer) throws IOException {
 			TextLongIntMessage tuple;
 			
-			while ((tuple = peer.getCurrentMessage()) != null) {
+			while ((tuple = profiler.getCurrentMessage()) != null) {
 				String term = tuple.getTerm().toString();
 				ArrayList<TextIntPair> postingsList = (invertedIndex.containsKey(term) ? invertedIndex.get(term) : new ArrayList<TextIntPair>());
 				TextIntPair posting = new TextIntPair(new Text(tuple.getDocid().toString()), new IntWritable(tuple.getFrequency().get()));
@@ -171,6 +174,7 @@ public class InvertedIndex extends Configured implements Tool {
 				peer.write(new Text(term), writablePostings);
 				postingsList.clear(); // Empty memory
 			}
+			profiler.close();
 		}
 	}
 	
@@ -205,6 +209,8 @@ public class InvertedIndex extends Configured implements Tool {
 	
 	private int printUsage() {
 		System.out.println("usage:\t <input path> <output path> <number of tasks [default = 37]> <number of files to read before synchronizing [default = 50000]>");
+		System.out.println("options:");
+		System.out.println("\t -D " + SuperstepProfiler.PROFILE + "=true (write a timeline of every peer to " + SuperstepProfiler.PROFILE_DIRECTORY + " in the output path)");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
@@ -256,6 +262,7 @@ public class InvertedIndex extends Configured implements Tool {
 		long startTime = System.currentTimeMillis();
 		if (job.waitForCompletion(true)) {
 			System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+			SuperstepProfiler.summarize(conf, new Path(outputPath));
 		}
 		return 0;
 	}
@@ -22,6 +22,7 @@ import org.apache.hama.bsp.TextInputFormat;
 import org.apache.hama.bsp.TextOutputFormat;
 import org.apache.hama.bsp.sync.SyncException;
 
+import profiling.SuperstepProfiler;
 import types.Cluster;
 import types.ClusterMessage;
 import types.Point;
@@ -40,6 +41,7 @@ public class KMeans extends Configured implements Tool {
 		
 		private int kmeans, round, iterations;
 		private Cluster me;
+		private SuperstepProfiler<ClusterMessage> profiler;
 		
 		@Override
 		public void setup(BSPPeer<LongWritable, Text, IntWritable, Text, ClusterMessage> peer) throws IOException { //initialize
@@ -47,6 +49,7 @@ public class KMeans extends Configured implements Tool {
 			round = 0;
 			iterations = peer.getConfiguration().getInt("iterations", 0);
 			me = new Cluster(peer.getPeerIndex(), 0, 0, new Point(), new Point[kmeans - 1]);
+			profiler = new SuperstepProfiler<ClusterMessage>(peer);
 		}
 		
 		@Override
@@ -59,20 +62,21 @@ public class KMeans extends Configured implements Tool {
 			boolean converged = false;
 			
 			initialize(peer);
-			peer.sync();
+			profiler.sync();
 			while (!converged && round < iterations) {
 				if (round != 0) { // The first round accounts for initialization, hence first needs to calculate the mean.
 					assignPoints(peer, points, clusters);
-					peer.sync();
+					profiler.sync();
 				}
 				receiveMessages(peer, points, clusters); // Receive the new points
 				updateCluster(peer, points); // Update this cluster its info according to the new points
-				peer.sync();
+				profiler.sync();
 				converged = receiveMessages(peer, points, clusters); // Set the new clusters and check if converged
 				round++;
 			}
 			
 			writeOutput(peer, points, clusters, converged);
+			profiler.close();
 		}
 		
 		/**
@@ -97,7 +101,7 @@ public class KMeans extends Configured implements Tool {
 					Cluster point = new Cluster(-1, -1, -1, new Point(lines[i]), new Point[0]);
 					final ClusterMessage m = new ClusterMessage(POINT, point);
 					String name = peer.getPeerName(clusterIndex);
-					peer.send(name, m);
+					profiler.send(name, m);
 				}
 			}
 		}
@@ -119,7 +123,7 @@ public class KMeans extends Configured implements Tool {
 			ClusterMessage message;
 			HashMap<String, Cluster> newClusters = new HashMap<String, Cluster>(kmeans);
 			
-			while ((message = peer.getCurrentMessage()) != null) {
+			while ((message = profiler.getCurrentMessage()) != null) {
 				String tag = message.getTag();
 				if (tag.equals(POINT)) { // Received a Point message
 					points.add(message.getCluster().getCentroid());
@@ -168,7 +172,7 @@ public class KMeans extends Configured implements Tool {
 				if (!name.equals(peer.getPeerName())) { // If the point did not stay in my cluster, send a message to the correct peer
 					pointsIterator.remove();
 					ClusterMessage m = new ClusterMessage(POINT, new Cluster(-1, -1, -1, currentPoint, new Point[0]));
-					peer.send(name, m);
+					profiler.send(name, m);
 				}
 			}
 		}
@@ -263,7 +267,7 @@ public class KMeans extends Configured implements Tool {
 			String[] clusterNames = peer.getAllPeerNames();
 			for (String clusterName : clusterNames) {
 				final ClusterMessage m = new ClusterMessage(peer.getPeerName(), new Cluster(me));
-				peer.send(clusterName, m);
+				profiler.send(clusterName, m);
 			}
 		}
 		
@@ -416,6 +420,8 @@ public class KMeans extends Configured implements Tool {
 	 */
 	private int printUsage() {
 		System.out.println("usage:\t <input path> <output path> <k mean points> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + SuperstepProfiler.PROFILE + "=true (write a timeline of every peer to " + SuperstepProfiler.PROFILE_DIRECTORY + " in the output path)");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
@@ -455,6 +461,7 @@ public class KMeans extends Configured implements Tool {
 		long startTime = System.currentTimeMillis();
 		if (job.waitForCompletion(true)) {
 			System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+			SuperstepProfiler.summarize(conf, outputPath);
 		}
 		return 0;
 	}
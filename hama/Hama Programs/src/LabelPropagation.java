@@ -0,0 +1,657 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.hama.HamaConfiguration;
+import org.apache.hama.bsp.BSP;
+import org.apache.hama.bsp.BSPJob;
+import org.apache.hama.bsp.BSPPeer;
+import org.apache.hama.bsp.TextInputFormat;
+import org.apache.hama.bsp.TextOutputFormat;
+import org.apache.hama.bsp.sync.SyncException;
+import org.apache.hama.graph.Edge;
+
+import types.LongDoubleMap;
+import types.PackedMessage;
+
+/**
+ * Hama program to partition a Pagerank graph over the peers
+ *  with balanced label propagation, such that fewer links
+ *  cross a peer. A label is the peer a vertex is assigned to,
+ *  starting from the peer the HashPartitioner assigns it to.
+ *  Every round a vertex asks to move to the label most of its
+ *  neighbors have, in either direction of a link. Moves between
+ *  two labels are allowed as far as they swap vertices, plus as
+ *  far as the receiving label stays below its capacity, the
+ *  average number of vertices per peer plus a slack. Afterwards
+ *  every vertex gets a new id the HashPartitioner assigns to its
+ *  label, and the graph is written as PartitionGraph does, to be
+ *  read by Pagerank with -D partitioned=true on as many peers.
+ *  The output holds the new and old id of every vertex.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class LabelPropagation extends Configured implements Tool {
+	
+	public static final String SLACK = "slack"; // Configuration key holding the fraction a label may grow larger than the average
+	public static final String GRAPH_PATH = "graphPath"; // Configuration key holding the directory to write the partitioned graph to
+	
+	public static class LabelPropagationBSP extends BSP<LongWritable, Text, LongWritable, Text, PackedMessage> {
+		
+		private int numPeers, me, rounds;
+		private float slack;
+		private long numVertices; // In the whole graph
+		private long[] sizes; // The number of vertices per label, in the whole graph
+		private int size; // Number of vertices this peer holds
+		private long[] ids;
+		private double[] ranks;
+		private int[] labels;
+		private int[] offsets; // The links of vertex v are links[offsets[v]] up to links[offsets[v + 1]]
+		private long[] links;
+		private boolean[] missing; // Per link, whether its target is not a vertex of the graph
+		private int[] inOffsets; // The vertices linking to vertex v are inLinks[inOffsets[v]] up to inLinks[inOffsets[v + 1]]
+		private long[] inLinks;
+		private int[] counts; // The number of neighbors of vertex v with label l at v * numPeers + l
+		private int[] wanted; // The label a vertex asked to move to in this round, -1 for none
+		private LongDoubleMap localIndex;
+		private long[][] buffers; // Per peer, the values to send it in one message
+		private int[] bufferLengths;
+		
+		@Override
+		public void setup(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) {
+			numPeers = peer.getNumPeers();
+			me = peer.getPeerIndex();
+			rounds = peer.getConfiguration().getInt("iterations", 0);
+			slack = peer.getConfiguration().getFloat(SLACK, 0.05f);
+			buffers = new long[numPeers][];
+			bufferLengths = new int[numPeers];
+		}
+		
+		@Override
+		public void bsp(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException, InterruptedException, SyncException {
+			distributeVertices(peer);
+			peer.sync();
+			buildVertices(peer);
+			peer.sync();
+			receiveLinks(peer);
+			peer.sync();
+			receiveMissing(peer);
+			
+			for (int round = 1; round <= rounds; round++) {
+				sendRequests(peer);
+				peer.sync();
+				long moved = moveVertices(peer, round);
+				peer.sync();
+				receiveLabels(peer);
+				if (moved == 0) {
+					break;
+				}
+			}
+			
+			sendCounts(peer);
+			peer.sync();
+			relabel(peer);
+			peer.sync();
+			sendVertices(peer);
+			peer.sync();
+			writeGraph(peer);
+		}
+		
+		/**
+		 * @return the peer the HashPartitioner of Hama assigns the vertex to
+		 */
+		private int hashPeer(long id) {
+			return Math.abs((int) (id ^ (id >>> 32)) % numPeers); // The hash of a LongWritable
+		}
+		
+		private void append(int p, long value) {
+			if (buffers[p] == null) {
+				buffers[p] = new long[1024];
+			}
+			else if (bufferLengths[p] == buffers[p].length) {
+				buffers[p] = Arrays.copyOf(buffers[p], bufferLengths[p] * 2);
+			}
+			buffers[p][bufferLengths[p]++] = value;
+		}
+		
+		/**
+		 * Sends every peer its buffer in one message, after which
+		 *  new buffers are used, as a message may be send later
+		 */
+		private void flush(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer, byte type) throws IOException {
+			for (int p = 0; p < numPeers; p++) {
+				if (bufferLengths[p] > 0) {
+					peer.send(peer.getPeerName(p), new PackedMessage(type, me, 0, buffers[p], bufferLengths[p]));
+				}
+				buffers[p] = null;
+				bufferLengths[p] = 0;
+			}
+		}
+		
+		/**
+		 * Reads in the vertices of the input split and sends
+		 *  every vertex to the peer it is hashed to
+		 */
+		private void distributeVertices(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			LongWritable key = new LongWritable();
+			Text value = new Text();
+			while (peer.readNext(key, value)) {
+				String[] lines = value.toString().split("\n");
+				for (String line : lines) {
+					String[] vertexInfo = line.trim().split("\\s+"); // The format of the PageRankTextReader: id, rank and the neighbors
+					if (vertexInfo.length < 2) {
+						continue;
+					}
+					long[] targets = new long[vertexInfo.length - 2];
+					for (int j = 2; j < vertexInfo.length; j++) {
+						targets[j - 2] = Long.parseLong(vertexInfo[j]);
+					}
+					long id = Long.parseLong(vertexInfo[0]);
+					PackedMessage message = new PackedMessage(PackedMessage.VERTEX, me, id, targets, targets.length);
+					message.setMass(Double.parseDouble(vertexInfo[1]));
+					peer.send(peer.getPeerName(hashPeer(id)), message);
+				}
+			}
+		}
+		
+		/**
+		 * Stores the received vertices, labelled with this peer,
+		 *  tells the peer of every target it is linked to, and
+		 *  tells every peer how many vertices this one holds
+		 */
+		private void buildVertices(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			ids = new long[1024];
+			ranks = new double[1024];
+			offsets = new int[1025];
+			links = new long[4096];
+			size = 0;
+			int edges = 0;
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					ranks = Arrays.copyOf(ranks, size * 2);
+					offsets = Arrays.copyOf(offsets, size * 2 + 1);
+				}
+				if (edges + message.getLength() > links.length) {
+					links = Arrays.copyOf(links, Math.max(links.length * 2, edges + message.getLength()));
+				}
+				ids[size] = message.getId();
+				ranks[size] = message.getMass();
+				for (int i = 0; i < message.getLength(); i++) {
+					links[edges++] = message.getIds()[i];
+				}
+				size++;
+				offsets[size] = edges;
+			}
+			ids = Arrays.copyOf(ids, size);
+			ranks = Arrays.copyOf(ranks, size);
+			offsets = Arrays.copyOf(offsets, size + 1);
+			links = Arrays.copyOf(links, edges);
+			missing = new boolean[edges];
+			labels = new int[size];
+			Arrays.fill(labels, me);
+			localIndex = new LongDoubleMap(size);
+			for (int v = 0; v < size; v++) {
+				localIndex.add(ids[v], v);
+			}
+			
+			for (int v = 0; v < size; v++) {
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					int p = hashPeer(links[e]);
+					append(p, links[e]);
+					append(p, ids[v]);
+				}
+			}
+			flush(peer, PackedMessage.LINKS);
+			long[] peerSize = new long[numPeers];
+			peerSize[me] = size;
+			for (int p = 0; p < numPeers; p++) {
+				peer.send(peer.getPeerName(p), new PackedMessage(PackedMessage.COUNTS, me, 0, peerSize, numPeers));
+			}
+		}
+		
+		/**
+		 * Stores the vertices linking to every vertex, and tells
+		 *  the sources of links to vertices not in the graph
+		 */
+		private void receiveLinks(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			sizes = new long[numPeers];
+			long[] pairs = new long[4096]; // Pairs of local vertex and source
+			int numPairs = 0;
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				if (message.getType() == PackedMessage.COUNTS) {
+					for (int l = 0; l < numPeers; l++) {
+						sizes[l] += message.getIds()[l];
+					}
+					continue;
+				}
+				for (int k = 0; k < message.getLength(); k += 2) {
+					long target = message.getIds()[k], source = message.getIds()[k + 1];
+					int v = (int) localIndex.get(target, -1.0);
+					if (v < 0) {
+						int p = hashPeer(source);
+						append(p, source);
+						append(p, target);
+						continue;
+					}
+					if (2 * numPairs + 2 > pairs.length) {
+						pairs = Arrays.copyOf(pairs, pairs.length * 2);
+					}
+					pairs[2 * numPairs] = v;
+					pairs[2 * numPairs + 1] = source;
+					numPairs++;
+				}
+			}
+			flush(peer, PackedMessage.MISSING);
+			numVertices = 0;
+			for (int l = 0; l < numPeers; l++) {
+				numVertices += sizes[l];
+			}
+			
+			inOffsets = new int[size + 1];
+			for (int k = 0; k < numPairs; k++) {
+				inOffsets[(int) pairs[2 * k] + 1]++;
+			}
+			for (int v = 0; v < size; v++) {
+				inOffsets[v + 1] += inOffsets[v];
+			}
+			inLinks = new long[numPairs];
+			int[] filled = Arrays.copyOf(inOffsets, size);
+			for (int k = 0; k < numPairs; k++) {
+				inLinks[filled[(int) pairs[2 * k]]++] = pairs[2 * k + 1];
+			}
+		}
+		
+		/**
+		 * Marks the links to vertices not in the graph, which keep
+		 *  their target and play no part in the labels, and counts
+		 *  the labels of the neighbors of every vertex
+		 */
+		private void receiveMissing(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				for (int k = 0; k < message.getLength(); k += 2) {
+					int v = (int) localIndex.get(message.getIds()[k], -1.0);
+					for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+						if (links[e] == message.getIds()[k + 1]) {
+							missing[e] = true;
+						}
+					}
+				}
+			}
+			
+			counts = new int[size * numPeers];
+			wanted = new int[size];
+			for (int v = 0; v < size; v++) {
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					if (!missing[e]) {
+						counts[v * numPeers + hashPeer(links[e])]++;
+					}
+				}
+				for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+					counts[v * numPeers + hashPeer(inLinks[e])]++;
+				}
+			}
+		}
+		
+		/**
+		 * Lets every vertex pick the label most of its neighbors
+		 *  have, and sends every peer the number of vertices asking
+		 *  to move per pair of labels, followed by the neighbors
+		 *  across a label and all the neighbors of this peer
+		 */
+		private void sendRequests(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			long[] requests = new long[numPeers * numPeers + 2];
+			for (int v = 0; v < size; v++) {
+				int base = v * numPeers, best = labels[v], degree = 0;
+				for (int l = 0; l < numPeers; l++) {
+					degree += counts[base + l];
+					if (counts[base + l] > counts[base + best]) {
+						best = l;
+					}
+				}
+				requests[numPeers * numPeers] += degree - counts[base + labels[v]];
+				requests[numPeers * numPeers + 1] += degree;
+				wanted[v] = best != labels[v] ? best : -1;
+				if (wanted[v] >= 0) {
+					requests[labels[v] * numPeers + best]++;
+				}
+			}
+			for (int p = 0; p < numPeers; p++) {
+				peer.send(peer.getPeerName(p), new PackedMessage(PackedMessage.COUNTS, me, 0, requests, requests.length));
+			}
+		}
+		
+		/**
+		 * Decides how many vertices may move per pair of labels,
+		 *  the same on every peer, and divides it over the peers
+		 *  in proportion to their requests. The vertices gaining
+		 *  the most neighbors of their label move first, and tell
+		 *  their neighbors about their new label.
+		 * @return the number of vertices moved in the whole graph
+		 */
+		private long moveVertices(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer, int round) throws IOException {
+			int pairs = numPeers * numPeers;
+			long[][] requests = new long[numPeers][];
+			long[] total = new long[pairs + 2];
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				requests[message.getPeer()] = Arrays.copyOf(message.getIds(), message.getLength());
+				for (int k = 0; k < pairs + 2; k++) {
+					total[k] += requests[message.getPeer()][k];
+				}
+			}
+			if (me == 0) {
+				System.out.printf("Edge cut ratio before round %d: %f\n", round, total[pairs + 1] > 0 ? (double) total[pairs] / total[pairs + 1] : 0.0);
+			}
+			
+			long[] allowed = new long[pairs];
+			for (int i = 0; i < numPeers; i++) { // Swaps keep the sizes
+				for (int j = i + 1; j < numPeers; j++) {
+					allowed[i * numPeers + j] = allowed[j * numPeers + i] = Math.min(total[i * numPeers + j], total[j * numPeers + i]);
+				}
+			}
+			long capacity = (long) Math.ceil((1 + slack) * numVertices / numPeers);
+			for (int j = 0; j < numPeers; j++) { // Other moves as far as the label has room
+				long room = capacity - sizes[j];
+				for (int i = 0; i < numPeers && room > 0; i++) {
+					long extra = Math.min(total[i * numPeers + j] - allowed[i * numPeers + j], room);
+					allowed[i * numPeers + j] += extra;
+					room -= extra;
+				}
+			}
+			
+			long moved = 0;
+			long[] share = new long[pairs];
+			long[] parts = new long[numPeers];
+			for (int pair = 0; pair < pairs; pair++) {
+				if (allowed[pair] == 0) {
+					continue;
+				}
+				for (int p = 0; p < numPeers; p++) {
+					parts[p] = requests[p][pair];
+				}
+				share[pair] = divide(allowed[pair], parts, total[pair])[me];
+				sizes[pair / numPeers] -= allowed[pair];
+				sizes[pair % numPeers] += allowed[pair];
+				moved += allowed[pair];
+			}
+			
+			long[] order = new long[size]; // The vertices asking to move, the largest gain last
+			int candidates = 0;
+			for (int v = 0; v < size; v++) {
+				if (wanted[v] >= 0) {
+					long gain = counts[v * numPeers + wanted[v]] - counts[v * numPeers + labels[v]];
+					order[candidates++] = gain << 32 | v;
+				}
+			}
+			Arrays.sort(order, 0, candidates);
+			for (int k = candidates - 1; k >= 0; k--) {
+				int v = (int) (order[k] & 0xffffffffL);
+				int pair = labels[v] * numPeers + wanted[v];
+				if (share[pair] == 0) {
+					continue;
+				}
+				share[pair]--;
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					if (!missing[e]) {
+						sendLabel(links[e], labels[v], wanted[v]);
+					}
+				}
+				for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+					sendLabel(inLinks[e], labels[v], wanted[v]);
+				}
+				labels[v] = wanted[v];
+			}
+			flush(peer, PackedMessage.LABELS);
+			return moved;
+		}
+		
+		private void sendLabel(long neighbor, int from, int to) {
+			int p = hashPeer(neighbor);
+			append(p, neighbor);
+			append(p, from);
+			append(p, to);
+		}
+		
+		/**
+		 * Divides an amount over parts in proportion to their size,
+		 *  handing out what rounding down leaves to the parts with
+		 *  the largest remainders, such that the shares add up to
+		 *  the amount
+		 * @param amount: the amount to divide, at most the total
+		 * @param parts: the size of every part
+		 * @param total: the summed size of the parts
+		 * @return the share of every part
+		 */
+		public static long[] divide(long amount, long[] parts, long total) {
+			long[] shares = new long[parts.length];
+			long[] remainders = new long[parts.length];
+			long left = amount;
+			for (int p = 0; p < parts.length; p++) {
+				shares[p] = amount * parts[p] / total;
+				remainders[p] = amount * parts[p] % total;
+				left -= shares[p];
+			}
+			while (left > 0) {
+				int largest = -1;
+				for (int p = 0; p < parts.length; p++) {
+					if (shares[p] < parts[p] && (largest < 0 || remainders[p] > remainders[largest])) {
+						largest = p;
+					}
+				}
+				shares[largest]++;
+				remainders[largest] = -1;
+				left--;
+			}
+			return shares;
+		}
+		
+		/**
+		 * Updates the label counts with the moves of the neighbors
+		 */
+		private void receiveLabels(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				for (int k = 0; k < message.getLength(); k += 3) {
+					int v = (int) localIndex.get(message.getIds()[k], -1.0);
+					counts[v * numPeers + (int) message.getIds()[k + 1]]--;
+					counts[v * numPeers + (int) message.getIds()[k + 2]]++;
+				}
+			}
+		}
+		
+		/**
+		 * Sends every peer the number of vertices of this peer per
+		 *  label, to number the vertices of a label over the peers,
+		 *  followed by the neighbors across a label and all of them
+		 */
+		private void sendCounts(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			long[] labelCounts = new long[numPeers + 2];
+			for (int v = 0; v < size; v++) {
+				int degree = 0;
+				for (int l = 0; l < numPeers; l++) {
+					degree += counts[v * numPeers + l];
+				}
+				labelCounts[labels[v]]++;
+				labelCounts[numPeers] += degree - counts[v * numPeers + labels[v]];
+				labelCounts[numPeers + 1] += degree;
+			}
+			for (int p = 0; p < numPeers; p++) {
+				peer.send(peer.getPeerName(p), new PackedMessage(PackedMessage.COUNTS, me, 0, labelCounts, labelCounts.length));
+			}
+		}
+		
+		/**
+		 * Gives every vertex a new id the HashPartitioner assigns
+		 *  to its label, numbering the vertices of a label after
+		 *  those of the peers before this one, writes the new and
+		 *  old id, and tells the peers of the vertices linking to
+		 *  a vertex its new id
+		 */
+		private void relabel(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			long[] next = new long[numPeers]; // The number of the next vertex per label
+			long cut = 0, degrees = 0;
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				for (int l = 0; l < numPeers; l++) {
+					if (message.getPeer() < me) {
+						next[l] += message.getIds()[l];
+					}
+				}
+				cut += message.getIds()[numPeers];
+				degrees += message.getIds()[numPeers + 1];
+			}
+			if (me == 0) {
+				System.out.printf("Edge cut ratio after partitioning: %f\n", degrees > 0 ? (double) cut / degrees : 0.0);
+				System.out.printf("Vertices per peer: %s\n", Arrays.toString(sizes));
+			}
+			
+			LongWritable key = new LongWritable();
+			Text value = new Text();
+			boolean[] told = new boolean[numPeers];
+			for (int v = 0; v < size; v++) {
+				long newId = next[labels[v]]++ * numPeers + labels[v];
+				Arrays.fill(told, false);
+				for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+					int p = hashPeer(inLinks[e]);
+					if (!told[p]) {
+						told[p] = true;
+						append(p, ids[v]);
+						append(p, newId);
+					}
+				}
+				key.set(newId);
+				value.set(Long.toString(ids[v]));
+				peer.write(key, value);
+				ids[v] = newId;
+			}
+			flush(peer, PackedMessage.RELABEL);
+		}
+		
+		/**
+		 * Translates the links into the new ids, where links to a
+		 *  vertex not in the graph get a negative id no vertex has,
+		 *  and sends every vertex to the peer of its label
+		 */
+		private void sendVertices(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			LongDoubleMap newIds = new LongDoubleMap();
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				for (int k = 0; k < message.getLength(); k += 2) {
+					newIds.add(message.getIds()[k], message.getIds()[k + 1]);
+				}
+			}
+			
+			for (int v = 0; v < size; v++) {
+				long[] targets = new long[offsets[v + 1] - offsets[v]];
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					targets[e - offsets[v]] = missing[e] ? -(links[e] + 1) : (long) newIds.get(links[e], 0.0);
+				}
+				PackedMessage vertex = new PackedMessage(PackedMessage.VERTEX, me, ids[v], targets, targets.length);
+				vertex.setMass(ranks[v]);
+				peer.send(peer.getPeerName(labels[v]), vertex);
+			}
+		}
+		
+		/**
+		 * Writes the vertices of this peer into its partition
+		 */
+		private void writeGraph(BSPPeer<LongWritable, Text, LongWritable, Text, PackedMessage> peer) throws IOException {
+			Configuration conf = peer.getConfiguration();
+			Path partition = new Path(conf.get(GRAPH_PATH), PartitionGraph.partitionName(me));
+			SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.get(conf), conf, partition, Pagerank.PageRankBSP.class, NullWritable.class, SequenceFile.CompressionType.NONE);
+			PackedMessage message;
+			while ((message = peer.getCurrentMessage()) != null) {
+				Pagerank.PageRankBSP vertex = new Pagerank.PageRankBSP();
+				vertex.setVertexID(new LongWritable(message.getId()));
+				vertex.setValue(new DoubleWritable(message.getMass()));
+				for (int i = 0; i < message.getLength(); i++) {
+					vertex.addEdge(new Edge<LongWritable, NullWritable>(new LongWritable(message.getIds()[i]), null));
+				}
+				writer.append(vertex, NullWritable.get());
+			}
+			writer.close();
+		}
+	}
+	
+	public static BSPJob createJob(HamaConfiguration conf, Path inputPath, Path outputPath, int numPeers) throws IOException {
+		conf.set(GRAPH_PATH, new Path(outputPath, "graph").toString());
+		
+		BSPJob job = new BSPJob(conf, LabelPropagation.class); // Main settings
+		job.setJobName("Label Propagation");
+		job.setBspClass(LabelPropagationBSP.class);
+		job.setNumBspTask(numPeers);
+		job.setInputPath(inputPath); // Input settings
+		job.setInputFormat(TextInputFormat.class);
+		job.setInputKeyClass(LongWritable.class);
+		job.setInputValueClass(Text.class);
+		job.setOutputPath(new Path(outputPath, "labels")); // Output settings
+		job.setOutputFormat(TextOutputFormat.class);
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Text.class);
+		
+		return job;
+	}
+	
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <number of peers> <number of rounds>");
+		System.out.println("options:");
+		System.out.println("\t -D " + SLACK + "=<fraction> (how much larger than the average a peer may grow, default 0.05)");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	/**
+	 * Runs the main program
+	 *
+	 * @param args: String array of arguments given at start
+	 * @return -1 in case of error | 0 in case of success
+	 * @throws Exception from the createJob() and the waitForCompletion() methods
+	 */
+	@Override
+	public int run(String[] args) throws Exception {
+		int numPeers = 0, rounds = 0;
+		HamaConfiguration conf = new HamaConfiguration(getConf());
+		
+		// Set arguments
+		if (args.length < 4) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			numPeers = Integer.parseInt(args[2]);
+			rounds = Integer.parseInt(args[3]);
+			conf.setInt("iterations", rounds);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integers instead of " + args[2] + " (arg 2) and " + args[3] + " (arg 3)");
+			return printUsage();
+		}
+		
+		// Create and start a job
+		BSPJob job = createJob(conf, new Path(args[0]), new Path(args[1]), numPeers);
+		long startTime = System.currentTimeMillis();
+		if (job.waitForCompletion(true)) {
+			System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+			System.out.println("Run Pagerank with -D " + Pagerank.PARTITIONED + "=true on " + args[1] + "/graph");
+		}
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new LabelPropagation(), args);
+		System.exit(result);
+	}
+}
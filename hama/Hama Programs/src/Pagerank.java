@@ -1,19 +1,29 @@
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.hama.HamaConfiguration;
+import org.apache.hama.bsp.BSPJob;
 import org.apache.hama.bsp.BSPPeer;
+import org.apache.hama.bsp.SequenceFileInputFormat;
 import org.apache.hama.bsp.TextInputFormat;
 import org.apache.hama.bsp.TextOutputFormat;
 import org.apache.hama.graph.AbsDiffAggregator;
@@ -25,6 +35,12 @@ import org.apache.hama.graph.Vertex;
 import org.apache.hama.graph.VertexInputReader;
 import org.apache.hama.graph.VertexOutputWriter;
 
+import profiling.SuperstepProfiler;
+import types.LongDoubleMap;
+import aggregators.ActiveVertexAggregator;
+import aggregators.DanglingMassAggregator;
+import aggregators.ResidualAggregator;
+
 /**
  * Hama program to run the Pagerank algorithm as
  *  specified in 'Data-Intensive Text Processing with MapReduce'
@@ -34,20 +50,63 @@ import org.apache.hama.graph.VertexOutputWriter;
 public class Pagerank extends Configured implements Tool {
 	
 	public static final float CONVERGENCE_POINT = 0.0001f;
+	public static final String EXTRAPOLATE = "extrapolate"; // Configuration key holding every how many supersteps an Aitken extrapolation is done, 0 for none
+	public static final String COMBINE = "combine"; // Configuration key to sum up the messages of a peer per destination vertex before they are send
+	public static final String PARTITIONED = "partitioned"; // Configuration key stating the input is written by PartitionGraph, one file per peer
+	public static final String TOP_K = "topK"; // Configuration key holding the number of vertices to output, highest Pagerank first, 0 for all with their edges
+	public static final String TOP_DIRECTORY = "_top"; // Directory in the output holding the top K of every peer, till merged
+	public static final String TOP_FILE = "top"; // File in the output holding the merged top K
+	public static final String RANK_DUMP = "rankDump"; // Configuration key holding the directory to write the Pagerank of every vertex to in binary, without edges
+	public static final String HALT_TOLERANCE = "haltTolerance"; // Configuration key holding the change in Pagerank below which a vertex halts till it receives a message, 0 for none
+	
+	public static enum MessageCounters { // Counters of the messages send by all the supersteps
+		BEFORE_COMBINING, AFTER_COMBINING, REMOTE // REMOTE: the combined messages to a vertex of another peer
+	}
 	
 	public static class PageRankBSP extends Vertex<LongWritable, NullWritable, DoubleWritable> {
 		
 		public static final double ALPHA = 0.15f; // Global double representing the damping factor of the Pagerank algorithm
+		private static long loggedSuperstep = -1; // The last superstep of which the residual was printed, shared by the vertices of a peer
+		private static final ThreadLocal<CombineBuffer> buffers = new ThreadLocal<CombineBuffer>() { // Every peer runs in a thread of its own
+			@Override
+			protected CombineBuffer initialValue() {
+				return new CombineBuffer();
+			}
+		};
 		
+		private boolean combine;
 		private int numEdges;
+		private int extrapolationInterval, historyDepth;
+		private double previous, beforePrevious; // The Pageranks of the two supersteps before, kept with the vertex between supersteps
+		private float haltTolerance;
+		private double received, sent; // The Pagerank mass received so far, and the Pagerank the neighbors know of, when halting
 		
 		@Override
 		public void setup(Configuration conf) {
 			numEdges = getEdges().size();
+			extrapolationInterval = conf.getInt(EXTRAPOLATE, 0);
+			historyDepth = 0;
+			haltTolerance = conf.getFloat(HALT_TOLERANCE, 0.0f);
+			combine = conf.getBoolean(COMBINE, true) && haltTolerance == 0.0f; // The last vertex of a peer to compute is unknown when vertices halt
+			received = 0.0;
+			sent = 0.0;
+			buffers.get().vertices++;
 		}
 		
 		@Override
 		public void compute(Iterable<DoubleWritable> messages) throws IOException {
+			CombineBuffer buffer = buffers.get();
+			if (buffer.profiler == null) { // The peer is not known yet when the vertices are set up
+				buffer.profiler = new SuperstepProfiler<GraphJobMessage>(getPeer());
+				buffer.profiler.setMessageSize(new GraphJobMessage(new LongWritable(), new DoubleWritable())); // Hama sends the messages, all of the same size
+			}
+			buffer.profiler.mark(getSuperstepCount());
+			
+			if (haltTolerance > 0.0f) {
+				computeChange(messages);
+				return;
+			}
+			
 			// Calculate new Pagerank
 			if (getSuperstepCount() >= 1) {
 				double pagerank = 0.0, lostPagerankMassPart = 0.0, jump = 0.0, link = 0.0;
@@ -68,8 +127,18 @@ public class Pagerank extends Configured implements Tool {
 				jump = ALPHA / getNumVertices();
 				link = (1 - ALPHA) * (pagerank + lostPagerankMassPart);
 				pagerank = jump + link;
+				if (extrapolationInterval > 0 && historyDepth == 2 && getSuperstepCount() % extrapolationInterval == 0) {
+					pagerank = aitken(pagerank, previous, beforePrevious);
+					historyDepth = 0; // The next supersteps start from the extrapolated Pagerank
+				}
 				setValue(new DoubleWritable(pagerank));
 			}
+			if (extrapolationInterval > 0) {
+				beforePrevious = previous;
+				previous = getValue().get();
+				historyDepth = Math.min(historyDepth + 1, 2);
+			}
+			logResidual();
 			
 			// Calculate mass to sent
 			double pagerankMass = 0;
@@ -89,10 +158,164 @@ public class Pagerank extends Configured implements Tool {
 				voteToHalt(); // Reached convergence, hence halt
 				return;
 			}
-			sendMessageToNeighbors(new DoubleWritable(pagerankMass));
+			sendMass(pagerankMass);
+		}
+		
+		/**
+		 * Computes the Pagerank from the changes in mass send by
+		 *  the neighbors, which are added up in received. A vertex
+		 *  sends the change in its mass only once its Pagerank moved
+		 *  more than the tolerance away from the one its neighbors
+		 *  know of, and votes to halt otherwise; a message wakes it
+		 *  up again. Dangling vertices do not halt on their own,
+		 *  since the lost mass is summed up from them, but stop with
+		 *  the others when the residual of the vertices which
+		 *  computed drops below the convergence point. A halted
+		 *  vertex picks up a change in lost mass once it is woken up.
+		 */
+		private void computeChange(Iterable<DoubleWritable> messages) throws IOException {
+			if (getSuperstepCount() >= 1) {
+				for (DoubleWritable message : messages) {
+					received += message.get();
+				}
+				DoubleWritable lostPagerankMass = getLastAggregatedValue(0); // Aggregator 0 sums up the Pagerank of the dangling vertices
+				double lostPagerankMassPart = lostPagerankMass != null ? lostPagerankMass.get() / getNumVertices() : 0.0;
+				setValue(new DoubleWritable(ALPHA / getNumVertices() + (1 - ALPHA) * (received + lostPagerankMassPart)));
+			}
+			logResidual();
+			
+			// Check whether finished. Send the change in Pagerank mass if it is large enough, halt if not
+			DoubleWritable lastResidual = getLastAggregatedValue(1); // Aggregator 1 sums up the change of the vertices which computed
+			if (getSuperstepCount() > getMaxIteration()) {
+				System.out.printf("Reached maximum amount of iterations with no convergence\n\n");
+				voteToHalt();
+				return;
+			}
+			else if (lastResidual != null && getSuperstepCount() > 2 && lastResidual.get() < CONVERGENCE_POINT) {
+				System.out.printf("Convergence point has been reached in iteration %d\n\n", getSuperstepCount());
+				voteToHalt();
+				return;
+			}
+			if (numEdges == 0) {
+				return;
+			}
+			double change = getValue().get() - sent;
+			if (getSuperstepCount() == 0 || Math.abs(change) > haltTolerance) {
+				sendMessageToNeighbors(new DoubleWritable(change / numEdges));
+				sent = getValue().get();
+				getPeer().incrementCounter(MessageCounters.BEFORE_COMBINING, numEdges);
+				getPeer().incrementCounter(MessageCounters.AFTER_COMBINING, numEdges);
+			}
+			else {
+				voteToHalt(); // Nothing is send, hence no message is lost when all the vertices halt
+			}
+		}
+		
+		/**
+		 * Sends the Pagerank mass to the neighbors. When combining,
+		 *  the mass is summed up per destination vertex in the
+		 *  buffer of the peer instead, which the last vertex of
+		 *  the peer to compute sends on. Every vertex computes
+		 *  in every superstep, since all the vertices halt in
+		 *  the same superstep, hence the last one is found by
+		 *  counting.
+		 */
+		private void sendMass(double pagerankMass) throws IOException {
+			CombineBuffer buffer = buffers.get();
+			buffer.before += numEdges;
+			if (combine) {
+				for (Edge<LongWritable, NullWritable> edge : getEdges()) {
+					buffer.sums.add(edge.getDestinationVertexID().get(), pagerankMass);
+				}
+			}
+			else {
+				sendMessageToNeighbors(new DoubleWritable(pagerankMass));
+				buffer.after += numEdges;
+			}
+			
+			if (++buffer.computed == buffer.vertices) { // Last vertex of the peer in this superstep
+				LongDoubleMap sums = buffer.sums;
+				long remote = 0;
+				for (int slot = sums.nextSlot(-1); slot >= 0; slot = sums.nextSlot(slot)) {
+					LongWritable target = new LongWritable(sums.keyAt(slot));
+					if (getPartitioner().getPartition(target, null, getNumPeers()) != getPeer().getPeerIndex()) {
+						remote++;
+					}
+					sendMessage(target, new DoubleWritable(sums.valueAt(slot)));
+				}
+				getPeer().incrementCounter(MessageCounters.REMOTE, remote);
+				buffer.after += sums.size();
+				getPeer().incrementCounter(MessageCounters.BEFORE_COMBINING, buffer.before);
+				getPeer().incrementCounter(MessageCounters.AFTER_COMBINING, buffer.after);
+				getPeer().incrementCounter("MessagesBeforeCombining", "superstep " + getSuperstepCount(), buffer.before);
+				getPeer().incrementCounter("MessagesAfterCombining", "superstep " + getSuperstepCount(), buffer.after);
+				buffer.reset();
+			}
+		}
+		
+		/**
+		 * Prints the summed change in Pagerank of the previous
+		 *  superstep once per superstep, by the first peer only,
+		 *  and the number of vertices left active when halting.
+		 *  Peers only log when one of their vertices computes.
+		 */
+		private void logResidual() {
+			DoubleWritable residual = getLastAggregatedValue(1);
+			if (residual != null && getPeer().getPeerIndex() == 0 && loggedSuperstep != getSuperstepCount()) {
+				loggedSuperstep = getSuperstepCount();
+				System.out.printf("Residual of superstep %d: %f\n", getSuperstepCount() - 1, residual.get());
+				if (haltTolerance > 0.0f) {
+					DoubleWritable activeVertices = getLastAggregatedValue(2); // Aggregator 2 counts the vertices which did not halt
+					System.out.printf("Active vertices after superstep %d: %d\n", getSuperstepCount() - 1, (long) activeVertices.get());
+				}
+			}
 		}
 	}
 	
+	/**
+	 * The messages a peer is about to send in the current
+	 *  superstep, summed up per destination vertex
+	 */
+	public static class CombineBuffer {
+		
+		private LongDoubleMap sums;
+		private int vertices, computed; // The vertices of the peer, and those which computed in this superstep
+		private long before, after; // The messages in this superstep before and after combining
+		private SuperstepProfiler<GraphJobMessage> profiler; // Outlives the supersteps, hence not reset
+		
+		public CombineBuffer() {
+			sums = new LongDoubleMap();
+			vertices = 0;
+			reset();
+		}
+		
+		public void reset() {
+			sums.clear();
+			computed = 0;
+			before = 0;
+			after = 0;
+		}
+	}
+	
+	/**
+	 * Extrapolates the Pagerank of a vertex from its last three
+	 *  supersteps with Aitken's delta-squared process; vertices
+	 *  for which the differences do not shrink keep their Pagerank
+	 * @param pagerank: the Pagerank of the current superstep
+	 * @param previous: the Pagerank of the previous superstep
+	 * @param beforePrevious: the Pagerank of the superstep before the previous one
+	 * @return the extrapolated Pagerank
+	 */
+	public static double aitken(double pagerank, double previous, double beforePrevious) {
+		double step = pagerank - previous;
+		double curvature = pagerank - 2 * previous + beforePrevious;
+		if (Math.abs(curvature) < 1e-15 || Math.abs(step) >= Math.abs(previous - beforePrevious)) {
+			return pagerank;
+		}
+		double extrapolated = pagerank - step * step / curvature;
+		return extrapolated > 0 ? extrapolated : pagerank;
+	}
+	
 	public static class PageRankTextReader extends VertexInputReader<LongWritable, Text, LongWritable, NullWritable, DoubleWritable> {
 		
 		@Override
@@ -117,17 +340,102 @@ public class Pagerank extends Configured implements Tool {
 		}
 	}
 	
+	/**
+	 * Reads the files written by PartitionGraph as a whole, so
+	 *  every peer gets one file, in the order of the peers
+	 */
+	public static class PartitionInputFormat extends SequenceFileInputFormat<PageRankBSP, NullWritable> {
+		
+		@Override
+		protected boolean isSplitable(BSPJob job, Path file) {
+			return false;
+		}
+	}
+	
+	/**
+	 * A vertex and its Pagerank, ordered on the Pagerank
+	 */
+	public static class Candidate implements Comparable<Candidate> {
+		
+		private long docid;
+		private double pagerank;
+		
+		public Candidate(long docid, double pagerank) {
+			this.docid = docid;
+			this.pagerank = pagerank;
+		}
+		
+		@Override
+		public int compareTo(Candidate c) {
+			int cmp = Double.compare(pagerank, c.pagerank);
+			return cmp != 0 ? cmp : (docid < c.docid ? 1 : (docid == c.docid ? 0 : -1)); // Equal Pageranks rank the lower id higher
+		}
+	}
+	
+	/**
+	 * Writes every vertex with its Pagerank and edges, or with
+	 *  a top K only the K highest ranked vertices. Every peer
+	 *  then keeps its own top K, and once it wrote its last
+	 *  vertex writes it to a SequenceFile in the _top directory
+	 *  of the output, which mergeTop() merges after the job.
+	 *  Optionally the Pagerank of every vertex is dumped as well,
+	 *  in a SequenceFile per peer. The last vertex of a peer is
+	 *  found by counting, as the writer is not told when the
+	 *  vertices end; a peer without vertices writes nothing.
+	 */
 	public static class PageRankOutputWriter implements VertexOutputWriter<LongWritable, Text, LongWritable, NullWritable, DoubleWritable> {
-
+		
+		private Configuration conf;
+		private int topK, written;
+		private PriorityQueue<Candidate> top; // The smallest of the top K on top
+		private SequenceFile.Writer ranks;
+		
 		@Override
 		public void setup(Configuration conf) {
-			// Unused
+			this.conf = conf;
+			topK = conf.getInt(TOP_K, 0);
+			top = new PriorityQueue<Candidate>(topK + 1);
+			written = 0;
 		}
-
+		
 		@Override
 		public void write(Vertex<LongWritable, NullWritable, DoubleWritable> vertice, BSPPeer<Writable, Writable, LongWritable, Text, GraphJobMessage> peer) throws IOException {
 			long docid = vertice.getVertexID().get();
 			double pagerank = vertice.getValue().get();
+			
+			if (written == 0 && conf.get(RANK_DUMP) != null) {
+				Path dumpFile = new Path(conf.get(RANK_DUMP), String.format("part-%05d", peer.getPeerIndex()));
+				ranks = SequenceFile.createWriter(FileSystem.get(conf), conf, dumpFile, LongWritable.class, DoubleWritable.class, SequenceFile.CompressionType.NONE);
+			}
+			if (ranks != null) {
+				ranks.append(vertice.getVertexID(), vertice.getValue());
+			}
+			if (topK > 0) {
+				top.add(new Candidate(docid, pagerank));
+				if (top.size() > topK) {
+					top.poll();
+				}
+			}
+			else {
+				writeVertex(vertice, peer);
+			}
+			
+			if (++written == PageRankBSP.buffers.get().vertices) { // Last vertex of the peer, counted when the vertices were set up
+				if (PageRankBSP.buffers.get().profiler != null) {
+					PageRankBSP.buffers.get().profiler.close();
+				}
+				if (ranks != null) {
+					ranks.close();
+				}
+				if (topK > 0) {
+					writeTop(peer);
+				}
+			}
+		}
+		
+		private void writeVertex(Vertex<LongWritable, NullWritable, DoubleWritable> vertice, BSPPeer<Writable, Writable, LongWritable, Text, GraphJobMessage> peer) throws IOException {
+			long docid = vertice.getVertexID().get();
+			double pagerank = vertice.getValue().get();
 			List<Edge<LongWritable, NullWritable>> edges = vertice.getEdges();
 			
 			StringBuilder sb = new StringBuilder(); // The stringbuilder to create the complete Text object for output
@@ -140,6 +448,65 @@ public class Pagerank extends Configured implements Tool {
 			
 			peer.write(new LongWritable(docid), new Text(sb.toString()));
 		}
+		
+		/**
+		 * Writes the top K of this peer in its own file
+		 */
+		private void writeTop(BSPPeer<Writable, Writable, LongWritable, Text, GraphJobMessage> peer) throws IOException {
+			Path topFile = new Path(new Path(conf.get("bsp.output.dir"), TOP_DIRECTORY), String.format("part-%05d", peer.getPeerIndex()));
+			SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.get(conf), conf, topFile, LongWritable.class, DoubleWritable.class, SequenceFile.CompressionType.NONE);
+			try {
+				for (Candidate candidate : top) {
+					writer.append(new LongWritable(candidate.docid), new DoubleWritable(candidate.pagerank));
+				}
+			} finally {
+				writer.close();
+			}
+		}
+	}
+	
+	/**
+	 * Merges the top K of every peer into the overall top K,
+	 *  written highest first as a text file in the output,
+	 *  after which the files of the peers are removed
+	 * @param conf: the Configuration to reach the file system with
+	 * @param outputPath: the output Path of the job
+	 * @param topK: the number of vertices to keep
+	 * @throws IOException for reading the files of the peers or writing the top K
+	 */
+	public static void mergeTop(Configuration conf, Path outputPath, int topK) throws IOException {
+		Path topDirectory = new Path(outputPath, TOP_DIRECTORY);
+		FileSystem fs = topDirectory.getFileSystem(conf);
+		PriorityQueue<Candidate> top = new PriorityQueue<Candidate>(topK + 1); // The smallest of the top K on top
+		LongWritable docid = new LongWritable();
+		DoubleWritable pagerank = new DoubleWritable();
+		
+		FileStatus[] files = fs.exists(topDirectory) ? fs.listStatus(topDirectory) : new FileStatus[0];
+		for (FileStatus file : files) {
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, file.getPath(), conf);
+			try {
+				while (reader.next(docid, pagerank)) {
+					top.add(new Candidate(docid.get(), pagerank.get()));
+					if (top.size() > topK) {
+						top.poll();
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		
+		List<Candidate> sorted = new ArrayList<Candidate>(top);
+		Collections.sort(sorted, Collections.reverseOrder());
+		FSDataOutputStream out = fs.create(new Path(outputPath, TOP_FILE), true);
+		try {
+			for (Candidate candidate : sorted) {
+				out.write((candidate.docid + "\t" + candidate.pagerank + "\n").getBytes("UTF-8"));
+			}
+		} finally {
+			out.close();
+		}
+		fs.delete(topDirectory, true);
 	}
 	
 	public GraphJob createJob(HamaConfiguration conf, String inputPath, String outputPath) throws IOException {
@@ -149,9 +516,17 @@ public class Pagerank extends Configured implements Tool {
 		job.setJobName("PageRank");
 		job.setMaxIteration(conf.getInt("iterations", 0));
 		job.setInputPath(new Path(inputPath)); // Input settings
-		job.setInputFormat(TextInputFormat.class);
-		job.setInputKeyClass(LongWritable.class);
-		job.setInputValueClass(Text.class);
+		if (conf.getBoolean(PARTITIONED, false)) {
+			job.setInputFormat(PartitionInputFormat.class);
+			job.setInputKeyClass(PageRankBSP.class);
+			job.setInputValueClass(NullWritable.class);
+			job.setNumBspTask(countPartitions(conf, new Path(inputPath)));
+		}
+		else {
+			job.setInputFormat(TextInputFormat.class);
+			job.setInputKeyClass(LongWritable.class);
+			job.setInputValueClass(Text.class);
+		}
 		job.setOutputPath(new Path(outputPath)); // Output settings
 		job.setOutputFormat(TextOutputFormat.class);
 		job.setOutputKeyClass(Text.class);
@@ -162,13 +537,59 @@ public class Pagerank extends Configured implements Tool {
 		job.setEdgeValueClass(NullWritable.class);
 		job.setVertexInputReaderClass(PageRankTextReader.class);
 		job.setVertexOutputWriterClass(PageRankOutputWriter.class);
-		job.setAggregatorClass(SumAggregator.class, AbsDiffAggregator.class); // Aggregator settings
+		if (conf.getBoolean(PARTITIONED, false)) { // Every peer reads the vertices it owns as they are, hence no partitioning job is run beforehand
+			job.getConfiguration().setBoolean("bsp.input.runtime.partitioning", false);
+		}
+		setAggregators(job, conf.getFloat(HALT_TOLERANCE, 0.0f) > 0.0f); // Aggregator settings
 		
 		return job;
 	}
 	
+	/**
+	 * Sets the aggregators of the job
+	 * @param job: the GraphJob to set the aggregators of
+	 * @param halting: whether the vertices halt on their residual, which needs the aggregators of the active vertices
+	 */
+	@SuppressWarnings("unchecked") // Passing several aggregator classes creates a generic varargs array, which cannot be checked
+	private static void setAggregators(GraphJob job, boolean halting) {
+		if (halting) {
+			job.setAggregatorClass(DanglingMassAggregator.class, ResidualAggregator.class, ActiveVertexAggregator.class);
+		}
+		else {
+			job.setAggregatorClass(SumAggregator.class, AbsDiffAggregator.class);
+		}
+	}
+	
+	/**
+	 * @param conf: the Configuration to reach the file system with
+	 * @param inputPath: the Path of the directory written by PartitionGraph
+	 * @return the number of partitions, which is the number of peers to run on
+	 * @throws IOException for listing the directory
+	 */
+	private static int countPartitions(Configuration conf, Path inputPath) throws IOException {
+		FileSystem fs = inputPath.getFileSystem(conf);
+		FileStatus[] partitions = fs.listStatus(inputPath, new PathFilter() {
+			@Override
+			public boolean accept(Path path) {
+				return path.getName().startsWith(PartitionGraph.PARTITION_PREFIX);
+			}
+		});
+		if (partitions == null || partitions.length == 0) {
+			throw new IOException("No partitions found in " + inputPath);
+		}
+		return partitions.length;
+	}
+	
 	public int printUsage() {
 		System.out.println("usage:\t <input path> <output path> <number of iterations>");
+		System.out.println("options:");
+		System.out.println("\t -D " + EXTRAPOLATE + "=<number> (Aitken extrapolation every number of supersteps, at least 2)");
+		System.out.println("\t -D " + COMBINE + "=false (send one message per edge, instead of one per destination vertex per peer)");
+		System.out.println("\t -D " + PARTITIONED + "=true (read the input as written by PartitionGraph, on as many peers as it has partitions)");
+		System.out.println("\t -D " + TOP_K + "=<number> (write only the number of highest ranked vertices, without edges, to " + TOP_FILE + " in the output path)");
+		System.out.println("\t -D " + RANK_DUMP + "=<path> (also write the Pagerank of every vertex as a SequenceFile per peer)");
+		System.out.println("\t -D " + HALT_TOLERANCE + "=<number> (a vertex halts while its Pagerank changes less, sending changes per edge)");
+		System.out.println("\t -D " + SuperstepProfiler.PROFILE + "=true (write a timeline of every peer to " + SuperstepProfiler.PROFILE_DIRECTORY + " in the output path)");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
@@ -206,6 +627,10 @@ public class Pagerank extends Configured implements Tool {
 		long startTime = System.currentTimeMillis();
 		if (job.waitForCompletion(true)) {
 			System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+			if (conf.getInt(TOP_K, 0) > 0) {
+				mergeTop(conf, new Path(outputPath), conf.getInt(TOP_K, 0));
+			}
+			SuperstepProfiler.summarize(conf, new Path(outputPath));
 		}
 		
 		return 0;
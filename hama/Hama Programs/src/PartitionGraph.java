@@ -0,0 +1,146 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.hama.bsp.HashPartitioner;
+import org.apache.hama.bsp.Partitioner;
+
+/**
+ * Program to convert a Pagerank text graph into binary files,
+ *  one per peer, holding the vertices the peer owns as decided
+ *  by the HashPartitioner of Hama. Pagerank reads these with
+ *  -D partitioned=true, letting every peer load its own file
+ *  instead of partitioning the text graph before every job.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class PartitionGraph extends Configured implements Tool {
+	
+	public static final String PARTITION_PREFIX = "part-";
+	
+	/**
+	 * Writes the vertices of the text graph into a SequenceFile
+	 *  per peer, keyed by the vertex as Hama serializes it
+	 * @param conf: the Configuration to reach the file system with
+	 * @param inputPath: the Path of the text graph, a file or a directory
+	 * @param outputPath: the Path of the directory to write the partitions in
+	 * @param numPeers: the number of peers the Pagerank job will run on
+	 * @return the number of vertices written per partition
+	 * @throws Exception for reading the text or writing the partitions
+	 */
+	public static long[] partition(Configuration conf, Path inputPath, Path outputPath, int numPeers) throws Exception {
+		FileSystem fs = inputPath.getFileSystem(conf);
+		Partitioner<LongWritable, DoubleWritable> partitioner = new HashPartitioner<LongWritable, DoubleWritable>(); // The default partitioner of a GraphJob
+		Pagerank.PageRankTextReader reader = new Pagerank.PageRankTextReader();
+		SequenceFile.Writer[] writers = new SequenceFile.Writer[numPeers];
+		long[] vertices = new long[numPeers];
+		LongWritable key = new LongWritable();
+		Text value = new Text();
+		
+		for (int i = 0; i < numPeers; i++) {
+			writers[i] = SequenceFile.createWriter(fs, conf, new Path(outputPath, partitionName(i)), Pagerank.PageRankBSP.class, NullWritable.class, CompressionType.NONE);
+		}
+		try {
+			for (FileStatus file : fs.isFile(inputPath) ? new FileStatus[] { fs.getFileStatus(inputPath) } : fs.listStatus(inputPath)) {
+				String name = file.getPath().getName();
+				if (file.isDir() || name.startsWith("_") || name.startsWith(".")) { // Skip the logs and markers of the job that wrote the graph
+					continue;
+				}
+				BufferedReader in = new BufferedReader(new InputStreamReader(fs.open(file.getPath())));
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						if (line.trim().isEmpty()) {
+							continue;
+						}
+						Pagerank.PageRankBSP vertex = new Pagerank.PageRankBSP();
+						value.set(line.trim());
+						reader.parseVertex(key, value, vertex);
+						int partition = partitioner.getPartition(vertex.getVertexID(), vertex.getValue(), numPeers);
+						writers[partition].append(vertex, NullWritable.get());
+						vertices[partition]++;
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			for (SequenceFile.Writer writer : writers) {
+				writer.close();
+			}
+		}
+		return vertices;
+	}
+	
+	/**
+	 * @param partition: the index of the peer
+	 * @return the name of the file holding the vertices of the peer, ordered as the peers
+	 */
+	public static String partitionName(int partition) {
+		return String.format("%s%05d", PARTITION_PREFIX, partition);
+	}
+	
+	private int printUsage() {
+		System.out.println("usage:\t <input path> <output path> <number of peers>");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+	
+	/**
+	 * Runs the main program
+	 *
+	 * @param args: String array of arguments given at start
+	 * @return -1 in case of error | 0 in case of success
+	 * @throws Exception from the partition() method
+	 */
+	@Override
+	public int run(String[] args) throws Exception {
+		int numPeers = 0;
+		
+		// Set arguments
+		if (args.length < 3) {
+			System.err.println("Error: too few parameters given");
+			return printUsage();
+		}
+		try {
+			numPeers = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			System.err.println("Error: expected Integer instead of " + args[2]);
+			return printUsage();
+		}
+		if (numPeers < 1) {
+			System.err.println("Error: expected at least one peer");
+			return printUsage();
+		}
+		
+		// Write the partitions
+		long startTime = System.currentTimeMillis();
+		long[] vertices = partition(getConf(), new Path(args[0]), new Path(args[1]), numPeers);
+		long total = 0;
+		for (int i = 0; i < numPeers; i++) {
+			System.out.printf("%s: %d vertices\n", partitionName(i), vertices[i]);
+			total += vertices[i];
+		}
+		System.out.println("Partitioned " + total + " vertices in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+		
+		return 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int result = ToolRunner.run(new Configuration(), new PartitionGraph(), args);
+		System.exit(result);
+	}
+}
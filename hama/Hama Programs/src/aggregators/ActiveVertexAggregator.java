@@ -0,0 +1,31 @@
+package aggregators;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hama.graph.AbstractAggregator;
+import org.apache.hama.graph.Vertex;
+
+/**
+ * Counts the vertices which are still active after they
+ *  computed in a superstep. The count is a DoubleWritable,
+ *  as the aggregated values share the type of the vertex value.
+ */
+public class ActiveVertexAggregator extends AbstractAggregator<DoubleWritable, Vertex<?, ?, DoubleWritable>> {
+	
+	double activeVertices = 0.0;
+	
+	// called for every vertex that computed, and by the master
+	// with the count of every peer, which has no vertex
+	@Override
+	public void aggregate(Vertex<?, ?, DoubleWritable> vertex, DoubleWritable value) {
+		if (vertex == null) {
+			activeVertices += value.get();
+		}
+		else if (!vertex.isHalted()) {
+			activeVertices++;
+		}
+	}
+	
+	@Override
+	public DoubleWritable getValue() {
+		return new DoubleWritable(activeVertices);
+	}
+}
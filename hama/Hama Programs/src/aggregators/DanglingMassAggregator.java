@@ -0,0 +1,27 @@
+package aggregators;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hama.graph.AbstractAggregator;
+import org.apache.hama.graph.Vertex;
+
+/**
+ * Sums up the values of the vertices without edges, which
+ *  is the Pagerank mass lost by the dangling vertices.
+ */
+public class DanglingMassAggregator extends AbstractAggregator<DoubleWritable, Vertex<?, ?, DoubleWritable>> {
+	
+	double danglingMass = 0.0;
+	
+	// called for every vertex that computed, and by the master
+	// with the sum of every peer, which has no vertex
+	@Override
+	public void aggregate(Vertex<?, ?, DoubleWritable> vertex, DoubleWritable value) {
+		if (vertex == null || vertex.getEdges().isEmpty()) {
+			danglingMass += value.get();
+		}
+	}
+	
+	@Override
+	public DoubleWritable getValue() {
+		return new DoubleWritable(danglingMass);
+	}
+}
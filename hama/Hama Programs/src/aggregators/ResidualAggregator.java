@@ -0,0 +1,34 @@
+package aggregators;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hama.graph.AbstractAggregator;
+import org.apache.hama.graph.Vertex;
+
+/**
+ * Sums up the absolute change in value of the vertices that
+ *  computed. Unlike the AbsDiffAggregator of Hama, the values
+ *  themselves are only added up by the master, which receives
+ *  the sum of every peer.
+ */
+public class ResidualAggregator extends AbstractAggregator<DoubleWritable, Vertex<?, ?, DoubleWritable>> {
+	
+	double residual = 0.0;
+	
+	@Override
+	public void aggregate(Vertex<?, ?, DoubleWritable> vertex, DoubleWritable oldValue, DoubleWritable newValue) {
+		if (oldValue != null) {
+			residual += Math.abs(oldValue.get() - newValue.get());
+		}
+	}
+	
+	@Override
+	public void aggregate(Vertex<?, ?, DoubleWritable> vertex, DoubleWritable value) {
+		if (vertex == null) {
+			residual += value.get();
+		}
+	}
+	
+	@Override
+	public DoubleWritable getValue() {
+		return new DoubleWritable(residual);
+	}
+}
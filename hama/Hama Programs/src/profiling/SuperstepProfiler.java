@@ -0,0 +1,296 @@
+package profiling;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hama.bsp.BSPPeer;
+import org.apache.hama.bsp.BSPPeerImpl;
+import org.apache.hama.bsp.Counters;
+import org.apache.hama.bsp.sync.SyncException;
+
+/**
+ * Records per superstep how long a peer computes and waits in
+ *  the barrier, how many messages and bytes it sends and gets,
+ *  and the heap it uses, when the job runs with -D profile=true.
+ *  Every peer writes its timeline as a CSV file in the _profile
+ *  directory of the job output, which summarize() turns into a
+ *  table of the imbalance between the peers once the job ends.
+ *  A BSP calls sync() instead of the sync of its peer, and may
+ *  send and read messages through the profiler to count bytes,
+ *  as Hama does not count them. A vertex calls mark() when it
+ *  starts to compute, which ends the superstep before on the
+ *  first vertex of a new superstep; the time of the last vertex
+ *  to compute is then counted as waiting. A peer without active
+ *  vertices in a superstep has no line for it. When turned off
+ *  every call is passed on to the peer as is.
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class SuperstepProfiler<M extends Writable> {
+	
+	public static final String PROFILE = "profile"; // Configuration key to turn the profiling on
+	public static final String PROFILE_DIRECTORY = "_profile"; // Directory in the job output holding the timelines, skipped as input by its underscore
+	public static final String TIMELINE_PREFIX = "peer-";
+	public static final String HEADER = "superstep,peer,computeUs,syncUs,messagesSent,messagesReceived,bytesSent,bytesReceived,heapMB";
+	private static final int SUPERSTEP = 0, PEER = 1, COMPUTE = 2, SYNC = 3, SENT = 4, RECEIVED = 5, BYTES_SENT = 6, BYTES_RECEIVED = 7, HEAP = 8; // The columns of a timeline
+	
+	private final boolean enabled;
+	private final BSPPeer<?, ?, ?, ?, M> peer;
+	private final StringBuilder timeline;
+	private final DataOutputBuffer buffer; // To measure the size of a message in
+	private long messageSize; // The size of every message, 0 to measure every message
+	private long superstep;
+	private long computeStart, lastMark; // In nanoseconds
+	private long sentStart, receivedTotal; // The message counters of the peer at the start of the superstep
+	private long received, bytesSent, bytesReceived; // In the current superstep
+	
+	public SuperstepProfiler(BSPPeer<?, ?, ?, ?, M> peer) {
+		this.peer = peer;
+		enabled = peer.getConfiguration().getBoolean(PROFILE, false);
+		timeline = new StringBuilder(HEADER).append("\n");
+		buffer = new DataOutputBuffer();
+		messageSize = 0;
+		lastMark = 0;
+		if (enabled) {
+			start(peer.getSuperstepCount(), System.nanoTime());
+		}
+	}
+	
+	/**
+	 * Counts every message as the given size instead of
+	 *  measuring it, for messages send by Hama itself
+	 * @param message: a message of the size all messages have
+	 */
+	public void setMessageSize(Writable message) throws IOException {
+		messageSize = sizeOf(message);
+	}
+	
+	/**
+	 * Ends the computation of this superstep, synchronizes the
+	 *  peer and starts the next superstep
+	 * @throws IOException, SyncException, InterruptedException for the synchronize step
+	 */
+	public void sync() throws IOException, SyncException, InterruptedException {
+		if (!enabled) {
+			peer.sync();
+			return;
+		}
+		long computeEnd = System.nanoTime();
+		peer.sync();
+		long syncEnd = System.nanoTime();
+		finish(computeEnd, syncEnd);
+		start(peer.getSuperstepCount(), syncEnd);
+	}
+	
+	/**
+	 * Marks a vertex starting to compute in the given superstep,
+	 *  which ends the superstep before if it differs
+	 * @param vertexSuperstep: the superstep the vertex computes in
+	 */
+	public void mark(long vertexSuperstep) {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (lastMark == 0) {
+			start(vertexSuperstep, now); // The first vertex, after the supersteps loading the graph
+		}
+		else if (vertexSuperstep != superstep) {
+			finish(lastMark, now);
+			start(vertexSuperstep, now);
+		}
+		lastMark = now;
+	}
+	
+	public void send(String peerName, M message) throws IOException {
+		if (enabled && messageSize == 0) {
+			bytesSent += sizeOf(message);
+		}
+		peer.send(peerName, message);
+	}
+	
+	public M getCurrentMessage() throws IOException {
+		M message = peer.getCurrentMessage();
+		if (enabled && messageSize == 0 && message != null) {
+			bytesReceived += sizeOf(message);
+		}
+		return message;
+	}
+	
+	/**
+	 * Ends the last superstep and writes the timeline of this
+	 *  peer. The time after the last vertex to compute counts
+	 *  as waiting, as the vertices of the peer end together.
+	 * @throws IOException for writing the timeline
+	 */
+	public void close() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		finish(lastMark > 0 ? lastMark : now, now);
+		
+		Configuration conf = peer.getConfiguration();
+		Path file = new Path(new Path(conf.get("bsp.output.dir"), PROFILE_DIRECTORY), String.format("%s%05d.csv", TIMELINE_PREFIX, peer.getPeerIndex()));
+		FSDataOutputStream out = file.getFileSystem(conf).create(file, true);
+		try {
+			out.write(timeline.toString().getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+	
+	private void start(long superstep, long now) {
+		this.superstep = superstep;
+		computeStart = now;
+		sentStart = count(BSPPeerImpl.PeerCounter.TOTAL_MESSAGES_SENT);
+		long receivedCount = count(BSPPeerImpl.PeerCounter.TOTAL_MESSAGES_RECEIVED); // The messages of the barrier before, read in this superstep
+		received = receivedCount - receivedTotal;
+		receivedTotal = receivedCount;
+		bytesSent = 0;
+		bytesReceived = 0;
+	}
+	
+	private void finish(long computeEnd, long syncEnd) {
+		long sent = count(BSPPeerImpl.PeerCounter.TOTAL_MESSAGES_SENT) - sentStart;
+		Runtime runtime = Runtime.getRuntime();
+		timeline.append(superstep).append(',').append(peer.getPeerIndex()).append(',');
+		timeline.append((computeEnd - computeStart) / 1000).append(',').append((syncEnd - computeEnd) / 1000).append(',');
+		timeline.append(sent).append(',').append(received).append(',');
+		timeline.append(messageSize > 0 ? sent * messageSize : bytesSent).append(',');
+		timeline.append(messageSize > 0 ? received * messageSize : bytesReceived).append(',');
+		timeline.append((runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)).append("\n");
+	}
+	
+	private long count(Enum<?> counter) {
+		Counters.Counter value = peer.getCounter(counter);
+		return value != null ? value.getCounter() : 0;
+	}
+	
+	private long sizeOf(Writable message) throws IOException {
+		buffer.reset();
+		message.write(buffer);
+		return buffer.getLength();
+	}
+	
+	/**
+	 * Reads the timelines of all the peers of a job, and prints
+	 *  and writes per superstep the largest compute and barrier
+	 *  time, and the imbalance of the peers as the largest value
+	 *  divided by the average, followed by the totals per peer
+	 * @param conf: the Configuration of the job, doing nothing when not profiling
+	 * @param outputPath: the output Path of the job
+	 * @throws IOException for reading the timelines or writing the summary
+	 */
+	public static void summarize(Configuration conf, Path outputPath) throws IOException {
+		if (!conf.getBoolean(PROFILE, false)) {
+			return;
+		}
+		Path directory = new Path(outputPath, PROFILE_DIRECTORY);
+		FileSystem fs = directory.getFileSystem(conf);
+		if (!fs.exists(directory)) {
+			System.err.println("No timelines found in " + directory);
+			return;
+		}
+		
+		TreeMap<Long, List<long[]>> supersteps = new TreeMap<Long, List<long[]>>();
+		TreeMap<Long, long[]> peers = new TreeMap<Long, long[]>(); // The columns summed up per peer
+		for (FileStatus file : fs.listStatus(directory)) {
+			if (!file.getPath().getName().startsWith(TIMELINE_PREFIX)) {
+				continue;
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(fs.open(file.getPath()), "UTF-8"));
+			try {
+				String line = in.readLine(); // The header
+				while ((line = in.readLine()) != null) {
+					String[] fields = line.split(",");
+					long[] row = new long[fields.length];
+					for (int i = 0; i < fields.length; i++) {
+						row[i] = Long.parseLong(fields[i]);
+					}
+					if (!supersteps.containsKey(row[SUPERSTEP])) {
+						supersteps.put(row[SUPERSTEP], new ArrayList<long[]>());
+					}
+					supersteps.get(row[SUPERSTEP]).add(row);
+					if (!peers.containsKey(row[PEER])) {
+						peers.put(row[PEER], new long[row.length]);
+					}
+					long[] total = peers.get(row[PEER]);
+					for (int i = COMPUTE; i < row.length; i++) {
+						total[i] = i == HEAP ? Math.max(total[i], row[i]) : total[i] + row[i];
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+		
+		StringBuilder summary = new StringBuilder("superstep,peers,maxComputeMs,computeImbalance,slowestPeer,maxSyncMs,meanSyncMs,sentImbalance,receivedImbalance,bytesSentImbalance,maxHeapMB\n");
+		System.out.printf("\n%9s %5s %12s %9s %7s %12s %12s %9s %9s %9s %8s\n", "superstep", "peers", "compute (ms)", "imbalance", "slowest", "sync (ms)", "mean sync", "sent", "received", "bytes", "heap MB");
+		for (Entry<Long, List<long[]>> entry : supersteps.entrySet()) {
+			List<long[]> rows = entry.getValue();
+			long[] slowest = rows.get(0);
+			for (long[] row : rows) {
+				if (row[COMPUTE] > slowest[COMPUTE]) {
+					slowest = row;
+				}
+			}
+			double computeImbalance = imbalance(rows, COMPUTE), sentImbalance = imbalance(rows, SENT), receivedImbalance = imbalance(rows, RECEIVED), bytesImbalance = imbalance(rows, BYTES_SENT);
+			double maxSync = max(rows, SYNC) / 1000.0, meanSync = sum(rows, SYNC) / 1000.0 / rows.size();
+			System.out.printf("%9d %5d %12.3f %9.2f %7d %12.3f %12.3f %9.2f %9.2f %9.2f %8d\n", entry.getKey(), rows.size(), slowest[COMPUTE] / 1000.0, computeImbalance, slowest[PEER], maxSync, meanSync, sentImbalance, receivedImbalance, bytesImbalance, max(rows, HEAP));
+			summary.append(entry.getKey()).append(',').append(rows.size()).append(',').append(slowest[COMPUTE] / 1000.0).append(',').append(computeImbalance).append(',').append(slowest[PEER]).append(',');
+			summary.append(maxSync).append(',').append(meanSync).append(',').append(sentImbalance).append(',').append(receivedImbalance).append(',').append(bytesImbalance).append(',').append(max(rows, HEAP)).append("\n");
+		}
+		
+		System.out.printf("\n%5s %12s %12s %12s %12s %14s %8s\n", "peer", "compute (s)", "sync (s)", "sent", "received", "bytes sent", "heap MB");
+		for (Entry<Long, long[]> entry : peers.entrySet()) {
+			long[] total = entry.getValue();
+			System.out.printf("%5d %12.3f %12.3f %12d %12d %14d %8d\n", entry.getKey(), total[COMPUTE] / 1000000.0, total[SYNC] / 1000000.0, total[SENT], total[RECEIVED], total[BYTES_SENT], total[HEAP]);
+		}
+		List<long[]> totals = new ArrayList<long[]>(peers.values());
+		System.out.printf("Compute imbalance over the job: %.2f | Messages sent imbalance: %.2f\n\n", imbalance(totals, COMPUTE), imbalance(totals, SENT));
+		
+		FSDataOutputStream out = fs.create(new Path(directory, "summary.csv"), true);
+		try {
+			out.write(summary.toString().getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+	
+	private static long max(List<long[]> rows, int column) {
+		long max = 0;
+		for (long[] row : rows) {
+			max = Math.max(max, row[column]);
+		}
+		return max;
+	}
+	
+	private static long sum(List<long[]> rows, int column) {
+		long sum = 0;
+		for (long[] row : rows) {
+			sum += row[column];
+		}
+		return sum;
+	}
+	
+	/**
+	 * @return the largest value of the column divided by its average, 1 for a column of zeros
+	 */
+	private static double imbalance(List<long[]> rows, int column) {
+		long sum = sum(rows, column);
+		return sum > 0 ? (double) max(rows, column) * rows.size() / sum : 1.0;
+	}
+}
@@ -19,7 +19,7 @@ public class Node implements WritableComparable<Node> {
 	private BooleanWritable complete, structure, mass, hasFilledList;
 	private LongWritable nodeId;
 	private DoubleWritable pagerank;
-	private LongArrayWritable adjacencyList;
+	private AdjacencyWritable adjacencyList;
 	
 	public Node() {
 		complete = new BooleanWritable(false);
@@ -28,7 +28,7 @@ public class Node implements WritableComparable<Node> {
 		hasFilledList = new BooleanWritable(false);
 		nodeId = new LongWritable(0);
 		pagerank = new DoubleWritable(0.0f);
-		adjacencyList = null;
+		adjacencyList = new AdjacencyWritable();
 	}
 	
 	public LongWritable getNodeId() {
@@ -55,23 +55,25 @@ public class Node implements WritableComparable<Node> {
 		this.pagerank = pagerank;
 	}
 	
-	public LongArrayWritable getAdjacencyList() {
+	public AdjacencyWritable getAdjacencyList() {
 		return adjacencyList;
 	}
 	
-	public void setAdjacencyList(LongArrayWritable adjacencyList) {
-		if (adjacencyList != null) {
+	/**
+	 * Shares the given list with this node; it is not copied
+	 * @param adjacencyList: the AdjacencyWritable to use, ignored if null or empty
+	 */
+	public void setAdjacencyList(AdjacencyWritable adjacencyList) {
+		if (adjacencyList != null && !adjacencyList.isEmpty()) {
 			hasFilledList.set(true);
 			this.adjacencyList = adjacencyList;
 		}
 	}
 	
-	public void setAdjacencyList(LongWritable[] adjacencyArray) {
+	public void setAdjacencyList(long[] adjacencyArray) {
 		if (adjacencyArray.length > 0) {
 			hasFilledList.set(true);
-			LongArrayWritable linksWritable = new LongArrayWritable(LongWritable.class);
-			linksWritable.set(adjacencyArray);
-			adjacencyList = linksWritable;
+			adjacencyList = new AdjacencyWritable(adjacencyArray);
 		}
 	}
 	
@@ -131,10 +133,12 @@ public class Node implements WritableComparable<Node> {
 		nodeId.readFields(in);
 		pagerank.readFields(in);
 		//TODO System.out.printf("STRUCT: %b NODEID: %d PAGERANK: %f\n", structure.get(), nodeId.get(), pagerank.get());
-		if (hasFilledList.get()) {
-			adjacencyList = new LongArrayWritable(LongWritable.class);
+		if (hasFilledList.get()) { // The list is reused, hence a node read in should be copied before the next read
 			adjacencyList.readFields(in);
 		}
+		else {
+			adjacencyList.clear();
+		}
 	}
 	
 	@Override
@@ -0,0 +1,159 @@
+package types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Message used by the ColumnarPagerank and LabelPropagation,
+ *  which packs a whole array of ids or ranks in one message.
+ *  A one byte tag states what the message holds:
+ *  VERTEX: a vertex send to the peer owning it, with its
+ *   rank and the ids it links to
+ *  TARGETS: the ids a peer will send ranks for, in the order
+ *   of its rank messages, and the number of vertices it owns
+ *  MISSING: the positions in a list of targets which are not
+ *   a vertex of the graph, or with LabelPropagation the pairs
+ *   of source and target of links to a missing vertex
+ *  RANKS: the summed rank per target, in the order of the
+ *   targets, plus the mass the sender lost and its change
+ *  LINKS: pairs of target and source, one per link
+ *  LABELS: triples of a vertex, and the old and new label of
+ *   one of its neighbors
+ *  COUNTS: a count per label or pair of labels, followed by
+ *   sums the receiving peers add up
+ *  RELABEL: pairs of the old and new id of a vertex
+ * @author stevenb
+ * @date 18-10-2026
+ */
+public class PackedMessage implements Writable {
+	
+	public static final byte VERTEX = 0;
+	public static final byte TARGETS = 1;
+	public static final byte MISSING = 2;
+	public static final byte RANKS = 3;
+	public static final byte LINKS = 4;
+	public static final byte LABELS = 5;
+	public static final byte COUNTS = 6;
+	public static final byte RELABEL = 7;
+	
+	private byte type;
+	private int peer; // The index of the sending peer
+	private long id; // The vertex id, or the number of vertices of the sending peer
+	private double mass, residual;
+	private long[] ids;
+	private double[] values;
+	private int length;
+	
+	public PackedMessage() {
+		ids = new long[0];
+		values = new double[0];
+		length = 0;
+	}
+	
+	public PackedMessage(byte type, int peer, long id, long[] ids, int length) {
+		this.type = type;
+		this.peer = peer;
+		this.id = id;
+		this.ids = ids;
+		this.values = new double[0];
+		this.length = length;
+	}
+	
+	public PackedMessage(int peer, double[] values, double mass, double residual) {
+		this.type = RANKS;
+		this.peer = peer;
+		this.values = values;
+		this.ids = new long[0];
+		this.length = values.length;
+		this.mass = mass;
+		this.residual = residual;
+	}
+	
+	public byte getType() {
+		return type;
+	}
+	
+	public int getPeer() {
+		return peer;
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public void setMass(double mass) {
+		this.mass = mass;
+	}
+	
+	public double getMass() {
+		return mass;
+	}
+	
+	public double getResidual() {
+		return residual;
+	}
+	
+	public long[] getIds() {
+		return ids;
+	}
+	
+	public double[] getValues() {
+		return values;
+	}
+	
+	public int getLength() {
+		return length;
+	}
+	
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		type = in.readByte();
+		peer = WritableUtils.readVInt(in);
+		id = in.readLong();
+		mass = in.readDouble();
+		residual = in.readDouble();
+		length = WritableUtils.readVInt(in);
+		if (type == RANKS) {
+			values = values.length >= length ? values : new double[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = in.readDouble();
+			}
+		}
+		else {
+			ids = ids.length >= length ? ids : new long[length];
+			for (int i = 0; i < length; i++) {
+				ids[i] = in.readLong();
+			}
+		}
+	}
+	
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(type);
+		WritableUtils.writeVInt(out, peer);
+		out.writeLong(id);
+		out.writeDouble(mass);
+		out.writeDouble(residual);
+		WritableUtils.writeVInt(out, length);
+		if (type == RANKS) {
+			for (int i = 0; i < length; i++) {
+				out.writeDouble(values[i]);
+			}
+		}
+		else {
+			for (int i = 0; i < length; i++) {
+				out.writeLong(ids[i]);
+			}
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return type + "\t" + peer + "\t" + id + "\t" + (type == RANKS ? Arrays.toString(Arrays.copyOf(values, length)) : Arrays.toString(Arrays.copyOf(ids, length)));
+	}
+}
@@ -2,7 +2,6 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -24,7 +23,7 @@ import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
-import types.LongArrayWritable;
+import types.AdjacencyWritable;
 import cloud9.WikipediaPage;
 import cloud9.WikipediaPageInputFormat;
 
@@ -41,7 +40,7 @@ public class GraphParser extends Configured implements Tool {
 	public static final int INITIAL_CAPACITY = 17919895; //Initial-Capacity = (Number-of-Wikipedia-pages / 0.75) + 1
 	public static final String MAPPINGFILE = "mapping"; //File the path should be equal to
 	
-	public static class MapWithoutReducers extends Mapper<LongWritable, WikipediaPage, Text, LongArrayWritable> {
+	public static class MapWithoutReducers extends Mapper<LongWritable, WikipediaPage, Text, AdjacencyWritable> {
 		
 		private HashMap<String, Long> title_docidMap = null;
 		
@@ -95,22 +94,19 @@ public class GraphParser extends Configured implements Tool {
 			Text docid = new Text(value.getDocid() + " 1");//'1' is the initial Pagerank mass
 			List<String> allLinksList = value.extractLinkDestinations();
 			Iterator<String> linkIterator = allLinksList.iterator();
-			ArrayList<LongWritable> linksList = new ArrayList<LongWritable>();
+			long[] linksArray = new long[allLinksList.size()];
+			int numLinks = 0;
 			
 			while (linkIterator.hasNext()) {
 				String link = linkIterator.next().toLowerCase();//Should be lowercase to make sure a correct comparison is made | HashMap contains lowercase keys
-				if (title_docidMap.containsKey(link)) {
-					LongWritable linkDocid = new LongWritable(title_docidMap.get(link));
-					if (!linksList.contains(linkDocid)) {
-						linksList.add(linkDocid);
-					}
+				Long linkDocid = title_docidMap.get(link);
+				if (linkDocid != null) {
+					linksArray[numLinks++] = linkDocid;
 				}
 			}
 			
-			LongWritable[] linksArray = new LongWritable[linksList.size()];
-			linksList.toArray(linksArray);
-			LongArrayWritable links = new LongArrayWritable(LongWritable.class);
-			links.set(linksArray);
+			AdjacencyWritable links = new AdjacencyWritable();
+			links.set(linksArray, numLinks); // Sorts the links and drops the duplicates
 			context.write(docid, links);
 		}
 	}
@@ -169,47 +165,44 @@ public class GraphParser extends Configured implements Tool {
 			Text docid = new Text(value.getDocid() + " 1");//'1' is the initial Pagerank mass
 			List<String> allLinksList = value.extractLinkDestinations();
 			Iterator<String> linkIterator = allLinksList.iterator();
-			ArrayList<LongWritable> linksList = new ArrayList<LongWritable>();
+			long[] linksArray = new long[allLinksList.size()];
+			int numLinks = 0;
 			
 			while (linkIterator.hasNext()) {
 				String link = linkIterator.next().toLowerCase();//Should be lowercase to make sure a correct comparison is made | HashMap contains lowercase keys
-				if (title_docidMap.containsKey(link)) {
-					LongWritable linkDocid = new LongWritable(title_docidMap.get(link));
-					if (!linksList.contains(linkDocid)) {
-						linksList.add(linkDocid);
-					}
+				Long linkDocid = title_docidMap.get(link);
+				if (linkDocid != null) {
+					linksArray[numLinks++] = linkDocid;
 				}
 			}
 			
-			LongWritable[] linksArray = new LongWritable[linksList.size()];
-			linksList.toArray(linksArray);
-			LongArrayWritable links = new LongArrayWritable(LongWritable.class);
-			links.set(linksArray);
+			AdjacencyWritable links = new AdjacencyWritable();
+			links.set(linksArray, numLinks); // Sorts the links and drops the duplicates
 			context.write(docid, new Text(links.toString()));
 		}
 	}
 	
-	public static class Reduce extends Reducer<Text, Text, Text, LongArrayWritable> {
+	public static class Reduce extends Reducer<Text, Text, Text, AdjacencyWritable> {
 		public void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
 			int i = 0;
-			LongWritable[] linksArray;
+			long[] linksArray;
 			String linksList = values.iterator().next().toString();
 			String[] links = linksList.trim().replaceAll("\\s+", "-").split("-");
 			if(!links[0].equals("")){
-				linksArray = new LongWritable[links.length];
+				linksArray = new long[links.length];
 			} else {
-				linksArray = new LongWritable[0];
+				linksArray = new long[0];
 			}
 			
 			for(String link : links) {
 				if(!link.equals("")) {
-					linksArray[i] = new LongWritable(Long.parseLong(link));
+					linksArray[i] = Long.parseLong(link);
 					i++;
 				}
 			}
 			
-			LongArrayWritable linksArrayWritable = new LongArrayWritable(LongWritable.class);
-			linksArrayWritable.set(linksArray);
+			AdjacencyWritable linksArrayWritable = new AdjacencyWritable();
+			linksArrayWritable.set(linksArray, i);
 			context.write(key, linksArrayWritable);
 		}
 	}
@@ -237,7 +230,7 @@ public class GraphParser extends Configured implements Tool {
 			job.setMapperClass(MapWithReducers.class);
 		} else {
 			job.setOutputKeyClass(Text.class);
-			job.setOutputValueClass(LongArrayWritable.class);
+			job.setOutputValueClass(AdjacencyWritable.class);
 			job.setMapperClass(MapWithoutReducers.class);
 		}
 		job.setNumReduceTasks(reduceTasks);
@@ -10,9 +10,9 @@ public class LongArrayWritable extends ArrayWritable {
 
 	public String toString(){
 		String[] strings = this.toStrings();
-		String s = "";
+		StringBuilder b = new StringBuilder(); // Avoid the quadratic cost of repeated concatenation on large link lists
 		for(String string : strings)
-			s = s + string + " ";
-		return s;
+			b.append(string).append(" ");
+		return b.toString();
 	}
 }
\ No newline at end of file